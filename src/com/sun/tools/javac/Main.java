@@ -63,6 +63,12 @@ public class Main {
         newargs[1] = "com.sun.jdi.CommandLineLaunch:options=-esa -ea:com.sun.tools...";
         newargs[2] = "com.sun.tools.javac.Main";
         method.invoke(null, new Object[] { newargs });
+      } else if (args.length > 0 && args[0].equals("-Xserver")) {
+        Server.main();
+      } else if (args.length > 0 && args[0].equals("-Xclient")) {
+        String[] newargs = new String[args.length - 1];
+        System.arraycopy(args, 1, newargs, 0, newargs.length);
+        System.exit(Server.client(newargs));
       } else {
         int result = compile(args);
         System.exit(result);
@@ -25,20 +25,50 @@
 
 package com.sun.tools.javac;
 
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.CommandLine;
 import com.sun.tools.javac.main.JavacOption.Option;
+import com.sun.tools.javac.main.OptionName;
 import com.sun.tools.javac.main.RecognizedOptions.GrumpyHelper;
 import com.sun.tools.javac.main.RecognizedOptions;
+import com.sun.tools.javac.util.Context;
 import java.io.*;
 import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
-import javax.tools.*;
+
+import static com.sun.tools.javac.main.OptionName.*;
 
 /**
  * Java Compiler Server.  Can be used to speed up a set of (small)
  * compilation tasks by caching jar files between compilations.
  *
+ * <p>The server runs this compiler, so the trace options such as
+ * -traceCode and -srcPath are honoured.  Every request gets a fresh
+ * {@link Context}; what is kept warm across requests is the JVM itself
+ * and the process wide caches: the {@code ZipFileIndex} of the class
+ * path jars, the platform class files and the class signature indexes.
+ * Symtab and ClassReader are not reused, so every request still enters
+ * and completes each class it uses; sharing them would need completed
+ * symbols to be invalidated when their class files or sources change.
+ * Requests are compiled one at a time.
+ *
+ * <p>On start the server writes a random token to {@link #TOKEN_FILE},
+ * readable only by its user, and compiles only for clients that send
+ * that token first.  Other users on the machine can reach the loopback
+ * port, but cannot read the token.
+ *
+ * <p>Start the server with {@code java -jar TraceFromJavac.jar -Xserver}
+ * and send compilations to it with
+ * {@code java -jar TraceFromJavac.jar -Xclient <javac arguments>}.
+ * The client falls back to compiling in its own JVM when no server is
+ * listening.
+ *
  * <p><b>This is NOT part of any supported API.
  * If you write code that depends on this, you do so at your own
  * risk.  This code and its internal interfaces are subject to change
@@ -48,50 +78,25 @@ import javax.tools.*;
  * @since 1.6
  */
 class Server implements Runnable {
+    /** The loopback port the server listens on. */
+    static final int PORT = 0xcafe;
+
+    /** The file holding the token of the running server. */
+    static final File TOKEN_FILE = new File(System.getProperty("user.home"), ".javac-server-token");
+
+    /** The token clients must send, set when the server starts. */
+    private static String token;
+
     private final BufferedReader in;
     private final OutputStream out;
-    private final boolean isSocket;
-    private static final JavaCompiler tool = ToolProvider.getSystemJavaCompiler();
+    private static final Object compileLock = new Object();
     private static Logger logger = Logger.getLogger("com.sun.tools.javac");
-    static class CwdFileManager extends ForwardingJavaFileManager<JavaFileManager> {
-        String cwd;
-        CwdFileManager(JavaFileManager fileManager) {
-            super(fileManager);
-        }
-        String getAbsoluteName(String name) {
-            if (new File(name).isAbsolute()) {
-                return name;
-            } else {
-                return new File(cwd,name).getPath();
-            }
-        }
-//      public JavaFileObject getFileForInput(String name)
-//          throws IOException
-//      {
-//          return super.getFileForInput(getAbsoluteName(name));
-//      }
-    }
-    // static CwdFileManager fm = new CwdFileManager(tool.getStandardFileManager());
-    static StandardJavaFileManager fm = tool.getStandardFileManager(null, null, null);
     static {
-        // Use the same file manager for all compilations.  This will
-        // cache jar files in the standard file manager.  Use
-        // tool.getStandardFileManager().close() to release.
-        // FIXME tool.setFileManager(fm);
         logger.setLevel(java.util.logging.Level.SEVERE);
     }
-    private Server(BufferedReader in, OutputStream out, boolean isSocket) {
-        this.in = in;
-        this.out = out;
-        this.isSocket = isSocket;
-    }
-    private Server(BufferedReader in, OutputStream out) {
-        this(in, out, false);
-    }
     private Server(Socket socket) throws IOException, UnsupportedEncodingException {
-        this(new BufferedReader(new InputStreamReader(socket.getInputStream(), "utf-8")),
-             socket.getOutputStream(),
-             true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "utf-8"));
+        this.out = socket.getOutputStream();
     }
     public void run() {
         List<String> args = new ArrayList<String>();
@@ -105,7 +110,20 @@ class Server implements Runnable {
                 System.exit(0);
                 line = null;
             }
-            // fm.cwd=null;
+            if (line == null || !line.startsWith("TOKEN:") || !isToken(line.substring(6))) {
+                logger.severe("rejected a client without the server token");
+                PrintWriter p = new PrintWriter(out, true);
+                p.println("error: the server token does not match " + TOKEN_FILE);
+                p.flush();
+                return;
+            }
+            try {
+                line = in.readLine();
+            } catch (IOException e) {
+                System.err.println(e.getLocalizedMessage());
+                System.exit(0);
+                line = null;
+            }
             String cwd = null;
             while (line != null) {
                 if (line.startsWith("PWD:")) {
@@ -123,15 +141,11 @@ class Server implements Runnable {
                     line = null;
                 }
             }
-            Iterable<File> path = cwd == null ? null : Arrays.<File>asList(new File(cwd));
-            // try { in.close(); } catch (IOException e) {}
             long msec = System.currentTimeMillis();
             try {
-                synchronized (tool) {
-                    for (StandardLocation location : StandardLocation.values())
-                        fm.setLocation(location, path);
-                    res = compile(out, fm, args);
-                    // FIXME res = tool.run((InputStream)null, null, out, args.toArray(new String[args.size()]));
+                String[] resolved = resolveArgs(cwd, args);
+                synchronized (compileLock) {
+                    res = compile(out, resolved);
                 }
             } catch (Throwable ex) {
                 logger.log(java.util.logging.Level.SEVERE, args.toString(), ex);
@@ -144,13 +158,9 @@ class Server implements Runnable {
             } else {
                 logger.info(String.format("success: %s", args));
             }
-            // res = compile(args.toArray(new String[args.size()]), out);
             msec -= System.currentTimeMillis();
             logger.info(String.format("Real time: %sms", -msec));
         } finally {
-            if (!isSocket) {
-                try { in.close(); } catch (IOException e) {}
-            }
             try {
                 out.write(String.format("EXIT: %s%n", res).getBytes());
             } catch (IOException ex) {
@@ -165,35 +175,216 @@ class Server implements Runnable {
             logger.info(String.format("EXIT: %s", res));
         }
     }
-    public static void main(String... args) throws FileNotFoundException {
-        if (args.length == 2) {
-            for (;;) {
-                throw new UnsupportedOperationException("TODO");
-//              BufferedReader in = new BufferedReader(new FileReader(args[0]));
-//              PrintWriter out = new PrintWriter(args[1]);
-//              new Server(in, out).run();
-//              System.out.flush();
-//              System.err.flush();
+
+    /**
+     * The server cannot change its working directory, so make the
+     * arguments independent of it: command files are expanded here, and
+     * the operands of options are made absolute against the client's
+     * directory according to the option.  Path lists are resolved
+     * element by element, output directories and files always, and
+     * other arguments, i.e. source files, when they exist.
+     */
+    static String[] resolveArgs(String cwd, List<String> args) throws IOException {
+        String[] expanded = new String[args.size()];
+        for (int i = 0; i < expanded.length; i++) {
+            String arg = args.get(i);
+            if (arg.length() > 1 && arg.charAt(0) == '@' && arg.charAt(1) != '@')
+                arg = "@" + resolve(cwd, arg.substring(1), true);
+            expanded[i] = arg;
+        }
+        expanded = CommandLine.parse(expanded);
+        if (cwd == null)
+            return expanded;
+        Option[] recognizedOptions = RecognizedOptions.getAll(new GrumpyHelper());
+        for (int i = 0; i < expanded.length; i++) {
+            String arg = expanded[i];
+            Option option = null;
+            if (arg.length() > 0 && arg.charAt(0) == '-') {
+                for (Option o : recognizedOptions) {
+                    if (o.matches(arg)) {
+                        option = o;
+                        break;
+                    }
+                }
             }
-        } else {
-            ExecutorService pool = Executors.newCachedThreadPool();
-            try
-                {
-                ServerSocket socket = new ServerSocket(0xcafe, -1, null);
-                for (;;) {
-                    pool.execute(new Server(socket.accept()));
+            if (option == null) {
+                expanded[i] = resolve(cwd, arg, false);
+            } else if (option.hasArg()) {
+                if (i + 1 < expanded.length) {
+                    i++;
+                    expanded[i] = resolveOperand(cwd, option.getName(), expanded[i]);
+                }
+            } else if (pathOptions.contains(option.getName())) {
+                // the path follows the option name, e.g. -Xbootclasspath/p:path
+                String prefix = option.getName().optionName;
+                expanded[i] = prefix + resolvePath(cwd, option.getName(), arg.substring(prefix.length()));
+            } else {
+                for (String prefix : xdFileOptions) {
+                    if (arg.startsWith(prefix)) {
+                        expanded[i] = prefix + resolve(cwd, arg.substring(prefix.length()), true);
+                        break;
+                    }
                 }
             }
-            catch (IOException e) {
-                System.err.format("Error: %s%n", e.getLocalizedMessage());
-                pool.shutdown();
+        }
+        return expanded;
+    }
+    // where
+        /** Options whose operand is a list of files or directories. */
+        private static final Set<OptionName> pathOptions = EnumSet.of(
+            CLASSPATH, CP, SOURCEPATH, BOOTCLASSPATH, PROCESSORPATH,
+            XBOOTCLASSPATH_PREPEND, XBOOTCLASSPATH_APPEND, XBOOTCLASSPATH,
+            EXTDIRS, DJAVA_EXT_DIRS, ENDORSEDDIRS, DJAVA_ENDORSED_DIRS);
+
+        /** Options whose operand is a file or directory, which the
+         *  compiler may create.
+         */
+        private static final Set<OptionName> fileOptions = EnumSet.of(
+            D, S, SRCPATH, XSTDOUT);
+
+        /** Hidden options whose value is a file or directory. */
+        private static final String[] xdFileOptions = {
+            "-XDclassSignatureCache=", "-XDprofileFile="
+        };
+
+        private static String resolveOperand(String cwd, OptionName name, String operand) {
+            if (pathOptions.contains(name))
+                return resolvePath(cwd, name, operand);
+            if (fileOptions.contains(name))
+                return resolve(cwd, operand, true);
+            return operand;
+        }
+
+        private static String resolvePath(String cwd, OptionName name, String path) {
+            StringBuilder sb = new StringBuilder();
+            String sep = "";
+            for (String element : path.split(File.pathSeparator, -1)) {
+                // the class path reads an empty element as the current directory
+                if (element.length() == 0 && (name == CLASSPATH || name == CP))
+                    element = cwd;
+                sb.append(sep).append(resolve(cwd, element, true));
+                sep = File.pathSeparator;
+            }
+            return sb.toString();
+        }
+
+        private static String resolve(String cwd, String name, boolean always) {
+            if (cwd == null || name.length() == 0)
+                return name;
+            File f = new File(name);
+            if (f.isAbsolute())
+                return name;
+            File r = new File(cwd, name);
+            return always || r.exists() ? r.getPath() : name;
+        }
+
+    public static void main(String... args) {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try
+            {
+            // only accept local clients
+            ServerSocket socket = new ServerSocket(PORT, -1, InetAddress.getByName(null));
+            token = writeToken();
+            for (;;) {
+                pool.execute(new Server(socket.accept()));
             }
         }
+        catch (IOException e) {
+            System.err.format("Error: %s%n", e.getLocalizedMessage());
+            pool.shutdown();
+        }
     }
 
-    private int compile(OutputStream out, StandardJavaFileManager fm, List<String> args) {
-        // FIXME parse args and use getTask
-        // System.err.println("Running " + args);
-        return tool.run(null, null, out, args.toArray(new String[args.size()]));
+    /**
+     * Write a new random token to TOKEN_FILE.  The file is created as a
+     * temporary file, which on POSIX file systems is readable only by its
+     * owner, and then renamed, so that clients never read a partial token.
+     */
+    private static String writeToken() throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : random)
+            sb.append(String.format("%02x", b & 0xff));
+        String result = sb.toString();
+        Path file = TOKEN_FILE.toPath();
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, result.getBytes("US-ASCII"));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return result;
+    }
+
+    /** Compare with the server token in constant time. */
+    private static boolean isToken(String s) {
+        if (s.length() != token.length())
+            return false;
+        int diff = 0;
+        for (int i = 0; i < s.length(); i++)
+            diff |= s.charAt(i) ^ token.charAt(i);
+        return diff == 0;
+    }
+
+    /**
+     * Send a compilation to a running server and copy its output.
+     * @return the compiler's exit code, as reported by the server
+     */
+    static int client(String... args) throws IOException {
+        String clientToken;
+        Socket socket;
+        try {
+            clientToken = new String(Files.readAllBytes(TOKEN_FILE.toPath()), "US-ASCII").trim();
+            socket = new Socket(InetAddress.getByName(null), PORT);
+        } catch (IOException e) {
+            // no server running (or none was ever started), compile here
+            return Main.compile(args);
+        }
+        try {
+            PrintWriter w = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "utf-8"));
+            w.println("TOKEN:" + clientToken);
+            w.println("PWD:" + new File("").getAbsolutePath());
+            for (String arg : args)
+                w.println(arg);
+            w.println("END");
+            w.flush();
+
+            BufferedReader r = new BufferedReader(new InputStreamReader(socket.getInputStream(), "utf-8"));
+            int res = -1;
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("EXIT: "))
+                    res = Integer.parseInt(line.substring(6).trim());
+                else
+                    System.err.println(line);
+            }
+            return res;
+        } finally {
+            socket.close();
+        }
+    }
+
+    private int compile(OutputStream out, String[] args) throws UnsupportedEncodingException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "utf-8"), true);
+        Context context = new Context();
+        JavacFileManager.preRegister(context);
+        // keep the platform class files for the next requests
+        String[] serverArgs = new String[args.length + 1];
+        serverArgs[0] = "-XDplatformClassCache";
+        System.arraycopy(args, 0, serverArgs, 1, args.length);
+        try {
+            return new com.sun.tools.javac.main.Main("javac", writer).compile(serverArgs, context);
+        } finally {
+            writer.flush();
+            javax.tools.JavaFileManager fm = context.get(javax.tools.JavaFileManager.class);
+            if (fm != null) {
+                try {
+                    fm.close();
+                } catch (IOException e) {
+                }
+            }
+        }
     }
 }
@@ -438,6 +438,7 @@ public class JavacTaskImpl extends JavacTask {
             }
             if (genList.isEmpty()) {
                 compiler.reportDeferredDiagnostics();
+                compiler.reportProfile();
                 compiler.log.flush();
                 endContext();
             }
@@ -53,7 +53,9 @@ public class Scope {
      */
     public Symbol owner;
 
-    /** A hash table for the scope's entries.
+    /** A hash table for the scope's entries.  It is open addressed:
+     *  each slot holds the most recent entry for one name, and the
+     *  entries it shadows follow through Entry.shadowed.
      */
     public Entry[] table;
 
@@ -66,14 +68,24 @@ public class Scope {
      */
     public Entry elems;
 
-    /** The number of elements in this scope.
+    /** The number of slots of the table in use, including slots of
+     *  names that were removed.  The table is doubled when two thirds
+     *  of its slots are in use.
      */
     public int nelems = 0;
 
-    /** Every hash bucket is a list of Entry's which ends in sentinel.
+    /** Every list of entries for a name ends in sentinel or fresh.  A slot
+     *  that holds the sentinel belonged to a removed name.
      */
     private static final Entry sentinel = new Entry(null, null, null, null);
 
+    /** Ends the list of a slot that was free before its first entry was
+     *  entered.  Since scopes sharing a table are left in the reverse order
+     *  of entering, leave() may free such a slot again instead of keeping
+     *  it in use as a removed slot.
+     */
+    private static final Entry fresh = new Entry(null, null, null, null);
+
     /** The hash table's initial size.
      */
     private static final int INITIAL_SIZE = 0x10;
@@ -86,13 +98,17 @@ public class Scope {
      *  given table. The table's length must be an exponent of 2.
      */
     Scope(Scope next, Symbol owner, Entry[] table) {
+        this(next, owner, table, 0);
+    }
+
+    Scope(Scope next, Symbol owner, Entry[] table, int nelems) {
         this.next = next;
         assert emptyScope == null || owner != null;
         this.owner = owner;
         this.table = table;
         this.hashMask = table.length - 1;
         this.elems = null;
-        this.nelems = 0;
+        this.nelems = nelems;
         this.shared = 0;
     }
 
@@ -101,7 +117,6 @@ public class Scope {
      */
     public Scope(Symbol owner) {
         this(null, owner, new Entry[INITIAL_SIZE]);
-        for (int i = 0; i < INITIAL_SIZE; i++) table[i] = sentinel;
     }
 
     /** Construct a fresh scope within this scope, with same owner,
@@ -110,7 +125,7 @@ public class Scope {
      *  of fresh tables.
      */
     public Scope dup() {
-        Scope result = new Scope(this, this.owner, this.table);
+        Scope result = new Scope(this, this.owner, this.table, nelems);
         shared++;
         // System.out.println("====> duping scope " + this.hashCode() + " owned by " + this.owner + " to " + result.hashCode());
         // new Error().printStackTrace(System.out);
@@ -123,7 +138,7 @@ public class Scope {
      *  of fresh tables.
      */
     public Scope dup(Symbol newOwner) {
-        Scope result = new Scope(this, newOwner, this.table);
+        Scope result = new Scope(this, newOwner, this.table, nelems);
         shared++;
         // System.out.println("====> duping scope " + this.hashCode() + " owned by " + newOwner + " to " + result.hashCode());
         // new Error().printStackTrace(System.out);
@@ -135,7 +150,7 @@ public class Scope {
      *  the table of its outer scope.
      */
     public Scope dupUnshared() {
-        return new Scope(this, this.owner, this.table.clone());
+        return new Scope(this, this.owner, this.table.clone(), nelems);
     }
 
     /** Remove all entries of this scope from its table, if shared
@@ -145,20 +160,27 @@ public class Scope {
         assert shared == 0;
         if (table != next.table) return next;
         while (elems != null) {
-            int hash = elems.sym.name.index & hashMask;
+            int hash = getIndex(elems.name);
             Entry e = table[hash];
             assert e == elems : elems.sym;
-            table[hash] = elems.shadowed;
+            if (elems.shadowed == fresh) {
+                table[hash] = null;
+                nelems--;
+            } else {
+                table[hash] = elems.shadowed;
+            }
             elems = elems.sibling;
         }
         assert next.shared > 0;
         next.shared--;
+        next.nelems = nelems;
         // System.out.println("====> leaving scope " + this.hashCode() + " owned by " + this.owner + " to " + next.hashCode());
         // new Error().printStackTrace(System.out);
         return next;
     }
 
-    /** Double size of hash table.
+    /** Double size of hash table.  The outer scopes sharing the
+     *  table move to the new one with this scope.
      */
     private void dble() {
         assert shared == 0;
@@ -171,19 +193,51 @@ public class Scope {
                 s.hashMask = newtable.length - 1;
             }
         }
-        for (int i = 0; i < newtable.length; i++) newtable[i] = sentinel;
-        for (int i = 0; i < oldtable.length; i++) copy(oldtable[i]);
+        int n = 0;
+        for (int i = 0; i < oldtable.length; i++) {
+            Entry e = oldtable[i];
+            if (e != null && e != sentinel) {
+                // the order of entering is lost, so the slot stays in use
+                Entry last = e;
+                while (last.shadowed.scope != null)
+                    last = last.shadowed;
+                last.shadowed = sentinel;
+                table[getIndex(e.name)] = e;
+                n++;
+            }
+        }
+        // the outer scopes get their count back in leave()
+        nelems = n;
     }
 
-    /** Copy the given entry and all entries shadowed by it to table
+    /** Return the slot of the table for name, or a free slot where it
+     *  may be entered.  Slots are probed with a step derived from the
+     *  hash, so names with the same low bits do not form long runs.
+     *  A slot belongs to the name its entries were entered under, which
+     *  stays put when a class symbol is renamed (see ClassReader.enterClass).
+     *  Return -1 if the name is absent and the table has no free slot;
+     *  this can only happen when a scope sharing the table was dropped
+     *  without leave(), so that nelems was not handed back.
      */
-    private void copy(Entry e) {
-        if (e.sym != null) {
-            copy(e.shadowed);
-            int hash = e.sym.name.index & hashMask;
-            e.shadowed = table[hash];
-            table[hash] = e;
+    int getIndex(Name name) {
+        int h = name.hashCode();
+        int i = h & hashMask;
+        // always odd, and so prime to the table length
+        int x = hashMask - ((h + (h >> 16)) << 1);
+        int d = -1; // the first slot of a removed name
+        // the step visits every slot once in table.length probes
+        for (int n = table.length; n > 0; n--) {
+            Entry e = table[i];
+            if (e == null)
+                return d >= 0 ? d : i;
+            if (e == sentinel) {
+                if (d < 0)
+                    d = i;
+            } else if (e.name == name)
+                return i;
+            i = (i + x) & hashMask;
         }
+        return d;
     }
 
     /** Enter symbol sym in this scope.
@@ -204,13 +258,21 @@ public class Scope {
      */
     public void enter(Symbol sym, Scope s, Scope origin) {
         assert shared == 0;
-        // Temporarily disabled (bug 6460352):
-        // if (nelems * 3 >= hashMask * 2) dble();
-        int hash = sym.name.index & hashMask;
-        Entry e = makeEntry(sym, table[hash], elems, s, origin);
+        if (nelems * 3 >= hashMask * 2)
+            dble();
+        int hash = getIndex(sym.name);
+        if (hash < 0) {
+            dble();
+            hash = getIndex(sym.name);
+        }
+        Entry old = table[hash];
+        if (old == null) {
+            old = fresh;
+            nelems++;
+        }
+        Entry e = makeEntry(sym, old, elems, s, origin);
         table[hash] = e;
         elems = e;
-        nelems++;
     }
 
     Entry makeEntry(Symbol sym, Entry shadowed, Entry sibling, Scope scope, Scope origin) {
@@ -227,12 +289,13 @@ public class Scope {
         if (e.scope == null) return;
 
         // remove e from table and shadowed list;
-        Entry te = table[sym.name.index & hashMask];
+        int i = getIndex(e.name);
+        Entry te = table[i];
         if (te == e)
-            table[sym.name.index & hashMask] = e.shadowed;
+            table[i] = e.shadowed == fresh ? sentinel : e.shadowed;
         else while (true) {
             if (te.shadowed == e) {
-                te.shadowed = e.shadowed;
+                te.shadowed = e.shadowed == fresh ? sentinel : e.shadowed;
                 break;
             }
             te = te.shadowed;
@@ -279,7 +342,10 @@ public class Scope {
      *  for regular entries.
      */
     public Entry lookup(Name name) {
-        Entry e = table[name.index & hashMask];
+        int i = getIndex(name);
+        Entry e = i < 0 ? null : table[i];
+        if (e == null)
+            return sentinel;
         while (e.scope != null && e.sym.name != name)
             e = e.shadowed;
         return e;
@@ -345,10 +411,16 @@ public class Scope {
          */
         public Symbol sym;
 
-        /** An entry with the same hash code, or sentinel.
+        /** An entry entered under the same name, or sentinel or fresh.
          */
         private Entry shadowed;
 
+        /** The name this entry was entered under, which keys its slot
+         *  in the table.  It differs from sym.name once a flat class
+         *  has been renamed to its simple name as a member class.
+         */
+        private final Name name;
+
         /** Next entry in same scope.
          */
         public Entry sibling;
@@ -365,6 +437,7 @@ public class Scope {
             this.shadowed = shadowed;
             this.sibling = sibling;
             this.scope = scope;
+            this.name = sym == null ? null : sym.name;
         }
 
         /** Return next entry with the same name as this entry, proceeding
@@ -400,7 +473,10 @@ public class Scope {
         }
 
         public Entry lookup(Name name) {
-            Entry e = table[name.index & hashMask];
+            int i = getIndex(name);
+            Entry e = i < 0 ? null : table[i];
+            if (e == null)
+                return sentinel;
             while (e.scope != null &&
                    (e.sym.name != name ||
                     /* Since an inner class will show up in package and
@@ -478,7 +554,7 @@ public class Scope {
     /** An error scope, for which the owner should be an error symbol. */
     public static class ErrorScope extends Scope {
         ErrorScope(Scope next, Symbol errSymbol, Entry[] table) {
-            super(next, /*owner=*/errSymbol, table);
+            super(next, /*owner=*/errSymbol, table, next.nelems);
         }
         public ErrorScope(Symbol errSymbol) {
             super(errSymbol);
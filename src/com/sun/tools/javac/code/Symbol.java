@@ -671,6 +671,12 @@ public abstract class Symbol implements Element {
          */
         public Scope members_field;
 
+        /** the completer that enters the fields and methods of a class
+         *  read from a class file on first access to its members,
+         *  null if they have been entered
+         */
+        public Completer membersCompleter;
+
         /** the fully qualified name of the class, i.e. pck.outer.inner.
          *  null for anonymous classes
          */
@@ -727,9 +733,20 @@ public abstract class Symbol implements Element {
 
         public Scope members() {
             if (completer != null) complete();
+            if (membersCompleter != null) completeMembers();
             return members_field;
         }
 
+        /** Enter the fields and methods that have not been read yet.
+         */
+        public void completeMembers() throws CompletionFailure {
+            if (membersCompleter != null) {
+                Completer c = membersCompleter;
+                membersCompleter = null;
+                c.complete(this);
+            }
+        }
+
         public List<Attribute.Compound> getAnnotationMirrors() {
             if (completer != null) complete();
             assert attributes_field != null;
@@ -1173,26 +1190,7 @@ public abstract class Symbol implements Element {
          *  as possible implementations.
          */
         public MethodSymbol implementation(TypeSymbol origin, Types types, boolean checkResult) {
-            for (Type t = origin.type; t.tag == CLASS; t = types.supertype(t)) {
-                TypeSymbol c = t.tsym;
-                for (Scope.Entry e = c.members().lookup(name);
-                     e.scope != null;
-                     e = e.next()) {
-                    if (e.sym.kind == MTH) {
-                        MethodSymbol m = (MethodSymbol) e.sym;
-                        if (m.overrides(this, origin, types, checkResult) &&
-                            (m.flags() & SYNTHETIC) == 0)
-                            return m;
-                    }
-                }
-            }
-            // if origin is derived from a raw type, we might have missed
-            // an implementation because we do not know enough about instantiations.
-            // in this case continue with the supertype as origin.
-            if (types.isDerivedRaw(origin.type))
-                return implementation(types.supertype(origin.type).tsym, types, checkResult);
-            else
-                return null;
+            return types.implementation(this, origin, checkResult);
         }
 
         public List<VarSymbol> params() {
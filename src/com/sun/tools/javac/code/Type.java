@@ -1184,6 +1184,7 @@ public class Type implements PrimitiveType {
             c.type = this;
             c.kind = ERR;
             c.members_field = new Scope.ErrorScope(c);
+            c.membersCompleter = null;
         }
 
         public ErrorType(Name name, TypeSymbol container) {
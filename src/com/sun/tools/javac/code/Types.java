@@ -75,6 +75,7 @@ public class Types {
     final Check chk;
     List<Warner> warnStack = List.nil();
     final Name capturedName;
+    final RelationCache relationCache;
 
     // <editor-fold defaultstate="collapsed" desc="Instantiating">
     public static Types instance(Context context) {
@@ -93,6 +94,98 @@ public class Types {
         source = Source.instance(context);
         chk = Check.instance(context);
         capturedName = names.fromString("<captured wildcard>");
+        relationCache = Options.instance(context).get("noTypeCache") == null
+            ? new RelationCache()
+            : null;
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Relation cache">
+    /**
+     * A bounded memo table for isSubtype, asSuper and asOuterSuper,
+     * keyed on the identity of the types and symbols involved.  Only
+     * queries on class types are kept, and subtype queries only when
+     * the supertype has no type arguments: answering those never looks
+     * at type arguments and so never records bounds on an inference
+     * variable.  The supertypes of a class type are fixed once they
+     * have been computed, so entries need no invalidation; a table
+     * that grows too large is simply cleared.
+     */
+    static class RelationCache {
+        static final int MAX_SIZE = 0x4000;
+
+        /** Stands for a cached null result. */
+        static final Type NULL = new Type(NONE, null);
+
+        final Map<IdentityPair,Boolean> subtype =
+            new HashMap<IdentityPair,Boolean>();
+        final Map<IdentityPair,Type> asSuper =
+            new HashMap<IdentityPair,Type>();
+        final Map<IdentityPair,Type> asOuterSuper =
+            new HashMap<IdentityPair,Type>();
+
+        /** Implementations of methods in classes, see implementation. */
+        final Map<IdentityPair,Symbol> implementation =
+            new HashMap<IdentityPair,Symbol>();
+        final Map<IdentityPair,Symbol> implementationNoResultCheck =
+            new HashMap<IdentityPair,Symbol>();
+
+        int hits;
+        int misses;
+
+        <V> V get(Map<IdentityPair,V> map, Object a, Object b) {
+            V v = map.get(new IdentityPair(a, b));
+            if (v == null)
+                misses++;
+            else
+                hits++;
+            return v;
+        }
+
+        <V> void put(Map<IdentityPair,V> map, Object a, Object b, V v) {
+            if (map.size() >= MAX_SIZE)
+                map.clear();
+            map.put(new IdentityPair(a, b), v);
+        }
+
+        /** Can relations of this type be cached?  Its class must be
+         *  completed, so that its supertypes are known.
+         */
+        static boolean isCacheable(Type t) {
+            return t.tag == CLASS && t.tsym.completer == null;
+        }
+
+        @Override
+        public String toString() {
+            return "type relation cache: " + hits + " hits, " + misses + " misses";
+        }
+
+        static class IdentityPair {
+            final Object fst;
+            final Object snd;
+            IdentityPair(Object fst, Object snd) {
+                this.fst = fst;
+                this.snd = snd;
+            }
+            @Override
+            public boolean equals(Object other) {
+                return other instanceof IdentityPair
+                    && fst == ((IdentityPair)other).fst
+                    && snd == ((IdentityPair)other).snd;
+            }
+            @Override
+            public int hashCode() {
+                return System.identityHashCode(fst) * 31
+                    + System.identityHashCode(snd);
+            }
+        }
+    }
+
+    /**
+     * The statistics of the relation cache, or null if it is disabled.
+     */
+    public String relationCacheStats() {
+        return relationCache == null ? null : relationCache.toString();
     }
     // </editor-fold>
 
@@ -332,6 +425,18 @@ public class Types {
         if (t == s)
             return true;
 
+        if (relationCache != null
+                && RelationCache.isCacheable(t)
+                && RelationCache.isCacheable(s)
+                && !s.isParameterized()) {
+            Boolean result = relationCache.get(relationCache.subtype, t, s);
+            if (result == null) {
+                result = isSubtype.visit(t, s);
+                relationCache.put(relationCache.subtype, t, s, result);
+            }
+            return result;
+        }
+
         if (s.tag >= firstPartialTag)
             return isSuperType(s, t);
 
@@ -1287,7 +1392,15 @@ public class Types {
      * @param sym a symbol
      */
     public Type asSuper(Type t, Symbol sym) {
-        return asSuper.visit(t, sym);
+        if (relationCache == null || !RelationCache.isCacheable(t))
+            return asSuper.visit(t, sym);
+        Type result = relationCache.get(relationCache.asSuper, t, sym);
+        if (result == null) {
+            result = asSuper.visit(t, sym);
+            relationCache.put(relationCache.asSuper, t, sym,
+                              result == null ? RelationCache.NULL : result);
+        }
+        return result == RelationCache.NULL ? null : result;
     }
     // where
         private SimpleVisitor<Type,Symbol> asSuper = new SimpleVisitor<Type,Symbol>() {
@@ -1343,12 +1456,15 @@ public class Types {
     public Type asOuterSuper(Type t, Symbol sym) {
         switch (t.tag) {
         case CLASS:
-            do {
-                Type s = asSuper(t, sym);
-                if (s != null) return s;
-                t = t.getEnclosingType();
-            } while (t.tag == CLASS);
-            return null;
+            if (relationCache == null || !RelationCache.isCacheable(t))
+                return asOuterSuperClass(t, sym);
+            Type result = relationCache.get(relationCache.asOuterSuper, t, sym);
+            if (result == null) {
+                result = asOuterSuperClass(t, sym);
+                relationCache.put(relationCache.asOuterSuper, t, sym,
+                                  result == null ? RelationCache.NULL : result);
+            }
+            return result == RelationCache.NULL ? null : result;
         case ARRAY:
             return isSubtype(t, sym.type) ? sym.type : null;
         case TYPEVAR:
@@ -1359,6 +1475,15 @@ public class Types {
             return null;
         }
     }
+    // where
+        private Type asOuterSuperClass(Type t, Symbol sym) {
+            do {
+                Type s = asSuper(t, sym);
+                if (s != null) return s;
+                t = t.getEnclosingType();
+            } while (t.tag == CLASS);
+            return null;
+        }
 
     /**
      * Return the base type of t or any of its enclosing types that
@@ -1927,6 +2052,59 @@ public class Types {
         };
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="implementation">
+    /**
+     * The implementation of method ms in class origin; null if none
+     * exists.  See MethodSymbol.implementation.
+     *
+     * <p>The result is cached once origin and all the classes searched
+     * have been completed and attributed.  From then on only synthetic
+     * members, which are never implementations, are added to them.
+     */
+    public MethodSymbol implementation(MethodSymbol ms, TypeSymbol origin, boolean checkResult) {
+        if (relationCache == null)
+            return implementation(ms, origin, checkResult, null);
+        Map<RelationCache.IdentityPair,Symbol> cache = checkResult
+            ? relationCache.implementation
+            : relationCache.implementationNoResultCheck;
+        Symbol impl = relationCache.get(cache, ms, origin);
+        if (impl == null) {
+            boolean[] settled = { true };
+            impl = implementation(ms, origin, checkResult, settled);
+            if (settled[0])
+                relationCache.put(cache, ms, origin, impl == null ? syms.noSymbol : impl);
+        }
+        return impl == syms.noSymbol ? null : (MethodSymbol)impl;
+    }
+    // where
+        private MethodSymbol implementation(MethodSymbol ms, TypeSymbol origin,
+                                            boolean checkResult, boolean[] settled) {
+            for (Type t = origin.type; t.tag == CLASS; t = supertype(t)) {
+                TypeSymbol c = t.tsym;
+                if (settled != null &&
+                    (c.completer != null || (c.flags_field & UNATTRIBUTED) != 0))
+                    settled[0] = false;
+                for (Scope.Entry e = c.members().lookup(ms.name);
+                     e.scope != null;
+                     e = e.next()) {
+                    if (e.sym.kind == Kinds.MTH) {
+                        MethodSymbol m = (MethodSymbol) e.sym;
+                        if (m.overrides(ms, origin, this, checkResult) &&
+                            (m.flags() & SYNTHETIC) == 0)
+                            return m;
+                    }
+                }
+            }
+            // if origin is derived from a raw type, we might have missed
+            // an implementation because we do not know enough about instantiations.
+            // in this case continue with the supertype as origin.
+            if (isDerivedRaw(origin.type))
+                return implementation(ms, supertype(origin.type).tsym, checkResult, settled);
+            else
+                return null;
+        }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="subst">
     public List<Type> subst(List<Type> ts,
                             List<Type> from,
@@ -320,6 +320,7 @@ public class Enter extends JCTree.Visitor {
             c.sourcefile = tree.sourcefile;
             c.completer = null;
             c.members_field = new Scope(c);
+            c.membersCompleter = null;
             tree.packge.package_info = c;
         }
         classEnter(tree.defs, env);
@@ -387,6 +388,7 @@ public class Enter extends JCTree.Visitor {
         c.flags_field = chk.checkFlags(tree.pos(), tree.mods.flags, c, tree);
         c.sourcefile = env.toplevel.sourcefile;
         c.members_field = new Scope(c);
+        c.membersCompleter = null; // don't add members read from a class file
 
         ClassType ct = (ClassType)c.type;
         if (owner.kind != PCK && (c.flags_field & STATIC) == 0) {
@@ -277,8 +277,8 @@ public class Flow extends TreeScanner {
         Type thrown;
         PendingExit(JCTree tree, Bits inits, Bits uninits) {
             this.tree = tree;
-            this.inits = inits.dup();
-            this.uninits = uninits.dup();
+            this.inits = inits;
+            this.uninits = uninits;
         }
         PendingExit(JCTree tree, Type thrown) {
             this.tree = tree;
@@ -291,6 +291,34 @@ public class Flow extends TreeScanner {
      */
     ListBuffer<PendingExit> pendingExits;
 
+    /** Bit sets of resolved exits, kept for reuse by recordExit.
+     */
+    private final Bits[] freeBits = new Bits[16];
+    private int freeBitsCount = 0;
+
+    /** Scratch set for tests that would otherwise need a copy.
+     */
+    private final Bits scratchBits = new Bits();
+
+    /** Return a copy of bits, reusing the storage of a resolved exit
+     *  if one is available.
+     */
+    Bits copyBits(Bits bits) {
+        return (freeBitsCount == 0)
+            ? bits.dup()
+            : freeBits[--freeBitsCount].assign(bits);
+    }
+
+    /** Make the bit sets of an exit that is no longer pending available
+     *  for reuse.
+     */
+    void releaseBits(PendingExit exit) {
+        if (freeBitsCount < freeBits.length - 1) {
+            freeBits[freeBitsCount++] = exit.inits;
+            freeBits[freeBitsCount++] = exit.uninits;
+        }
+    }
+
     /*-------------------- Exceptions ----------------------*/
 
     /** Complain that pending exceptions are not caught.
@@ -406,7 +434,7 @@ public class Flow extends TreeScanner {
 
     /** Record an outward transfer of control. */
     void recordExit(JCTree tree) {
-        pendingExits.append(new PendingExit(tree, inits, uninits));
+        pendingExits.append(new PendingExit(tree, copyBits(inits), copyBits(uninits)));
         markDead();
     }
 
@@ -422,6 +450,7 @@ public class Flow extends TreeScanner {
                 ((JCBreak) exit.tree).target == tree) {
                 inits.andSet(exit.inits);
                 uninits.andSet(exit.uninits);
+                releaseBits(exit);
                 result = true;
             } else {
                 pendingExits.append(exit);
@@ -441,6 +470,7 @@ public class Flow extends TreeScanner {
                 ((JCContinue) exit.tree).target == tree) {
                 inits.andSet(exit.inits);
                 uninits.andSet(exit.uninits);
+                releaseBits(exit);
                 result = true;
             } else {
                 pendingExits.append(exit);
@@ -847,7 +877,7 @@ public class Flow extends TreeScanner {
             scan(tree.step);
             if (log.nerrors != 0 ||
                 loopPassTwo ||
-                uninitsEntry.dup().diffSet(uninits).nextBit(firstadr) == -1)
+                scratchBits.assign(uninitsEntry).diffSet(uninits).nextBit(firstadr) == -1)
                 break;
             uninits = uninitsEntry.andSet(uninits);
             loopPassTwo = true;
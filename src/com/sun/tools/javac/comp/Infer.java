@@ -25,6 +25,9 @@
 
 package com.sun.tools.javac.comp;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.sun.tools.javac.util.*;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.code.*;
@@ -277,6 +280,133 @@ public class Infer {
         return getInstFun.apply(qtype1);
     }
 
+    /** Same as below, for method msym seen as a member of site, where
+     *  `tvars' are fresh instances of the method's own type variables.
+     *  A successful instantiation that issued no warnings and does not
+     *  mention `tvars' is reused for later calls with the same method,
+     *  site and argument types.
+     */
+    public Type instantiateMethod(Symbol msym,
+                                  Type site,
+                                  List<Type> tvars,
+                                  MethodType mt,
+                                  List<Type> argtypes,
+                                  boolean allowBoxing,
+                                  boolean useVarargs,
+                                  Warner warn) throws NoInstanceException {
+        if (!isCacheable(site) || !isCacheable(argtypes))
+            return instantiateMethod(tvars, mt, argtypes, allowBoxing, useVarargs, warn);
+        Instantiation key = new Instantiation(msym, site, argtypes, allowBoxing, useVarargs);
+        Type result = instantiations.get(key);
+        if (result == null) {
+            RecordingWarner rwarn = new RecordingWarner(warn);
+            result = instantiateMethod(tvars, mt, argtypes, allowBoxing, useVarargs, rwarn);
+            if (!rwarn.called && !result.containsSome(tvars)) {
+                if (instantiations.size() >= MAX_INSTANTIATIONS)
+                    instantiations.clear();
+                instantiations.put(key, result);
+            }
+        }
+        return result;
+    }
+    //where
+        private static final int MAX_INSTANTIATIONS = 0x1000;
+
+        /** Earlier method instantiations, see above.
+         */
+        private final Map<Instantiation, Type> instantiations =
+            new HashMap<Instantiation, Type>();
+
+        /** Types compared with isSameType in an Instantiation must not
+         *  be erroneous, since error types are the same as any type, and
+         *  must not be polymorphic arguments, which are inferred anew.
+         */
+        private boolean isCacheable(Type t) {
+            return t.tag != FORALL && t.tag != UNDETVAR && !t.isErroneous();
+        }
+
+        private boolean isCacheable(List<Type> ts) {
+            for (List<Type> l = ts; l.nonEmpty(); l = l.tail)
+                if (!isCacheable(l.head.baseType())) return false;
+            return true;
+        }
+
+        /** A method call to be instantiated: the method, the type it is a
+         *  member of, the argument types and the phase of overload
+         *  resolution.  Types are compared with isSameType.
+         */
+        private class Instantiation {
+            final Symbol msym;
+            final Type site;
+            final List<Type> argtypes;
+            final boolean allowBoxing;
+            final boolean useVarargs;
+
+            Instantiation(Symbol msym, Type site, List<Type> argtypes,
+                          boolean allowBoxing, boolean useVarargs) {
+                this.msym = msym;
+                this.site = site;
+                this.argtypes = argtypes;
+                this.allowBoxing = allowBoxing;
+                this.useVarargs = useVarargs;
+            }
+
+            @Override
+            public int hashCode() {
+                int h = msym.hashCode() * 31 + Types.hashCode(site);
+                for (List<Type> l = argtypes; l.nonEmpty(); l = l.tail)
+                    h = h * 31 + Types.hashCode(l.head.baseType());
+                return h * 4 + (allowBoxing ? 2 : 0) + (useVarargs ? 1 : 0);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Instantiation))
+                    return false;
+                Instantiation that = (Instantiation)obj;
+                if (msym != that.msym ||
+                    allowBoxing != that.allowBoxing ||
+                    useVarargs != that.useVarargs ||
+                    argtypes.length() != that.argtypes.length() ||
+                    !types.isSameType(site, that.site))
+                    return false;
+                for (List<Type> l1 = argtypes, l2 = that.argtypes;
+                     l1.nonEmpty();
+                     l1 = l1.tail, l2 = l2.tail) {
+                    if (!types.isSameType(l1.head.baseType(), l2.head.baseType()))
+                        return false;
+                }
+                return true;
+            }
+        }
+
+        /** A warner that passes everything on to another one, noting
+         *  whether it was called at all.
+         */
+        private static class RecordingWarner extends Warner {
+            final Warner warn;
+            boolean called = false;
+
+            RecordingWarner(Warner warn) {
+                super(warn.pos());
+                this.warn = warn;
+            }
+
+            @Override
+            public void warnUnchecked() {
+                super.warnUnchecked();
+                called = true;
+                warn.warnUnchecked();
+            }
+
+            @Override
+            public void silentUnchecked() {
+                super.silentUnchecked();
+                called = true;
+                warn.silentUnchecked();
+            }
+        }
+
     /** Instantiate method type `mt' by finding instantiations of
      *  `tvars' so that method can be applied to `argtypes'.
      */
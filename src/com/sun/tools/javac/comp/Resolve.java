@@ -40,6 +40,9 @@ import static com.sun.tools.javac.code.Kinds.*;
 import static com.sun.tools.javac.code.TypeTags.*;
 import javax.lang.model.element.ElementVisitor;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /** Helper class for name resolution, used mostly by the attribution phase.
  *
  *  <p><b>This is NOT part of any supported API.
@@ -322,7 +325,19 @@ public class Resolve {
             if (l.head.tag == FORALL) instNeeded = true;
         }
 
-        if (instNeeded)
+        if (instNeeded) {
+            // the instantiation can be reused if it only depends on
+            // the method's own type variables
+            if (env.info.tvars.isEmpty())
+                return
+                infer.instantiateMethod(m,
+                                        site,
+                                        tvars,
+                                        (MethodType)mt,
+                                        argtypes,
+                                        allowBoxing,
+                                        useVarargs,
+                                        warn);
             return
             infer.instantiateMethod(tvars,
                                     (MethodType)mt,
@@ -330,6 +345,7 @@ public class Resolve {
                                     allowBoxing,
                                     useVarargs,
                                     warn);
+        }
         return
             argumentsAcceptable(argtypes, mt.getParameterTypes(),
                                 allowBoxing, useVarargs, warn)
@@ -709,6 +725,17 @@ public class Resolve {
                       boolean allowBoxing,
                       boolean useVarargs,
                       boolean operator) {
+        MethodCandidates candidates = methodCandidates(site.tsym, name);
+        if (candidates != null)
+            return findMethod(env,
+                              site,
+                              argtypes,
+                              typeargtypes,
+                              candidates,
+                              methodNotFound,
+                              allowBoxing,
+                              useVarargs,
+                              operator);
         return findMethod(env,
                           site,
                           name,
@@ -772,6 +799,121 @@ public class Resolve {
         return bestSoFar;
     }
 
+    /** Same as above, but walk a list of candidates computed before.
+     */
+    private Symbol findMethod(Env<AttrContext> env,
+                              Type site,
+                              List<Type> argtypes,
+                              List<Type> typeargtypes,
+                              MethodCandidates candidates,
+                              Symbol bestSoFar,
+                              boolean allowBoxing,
+                              boolean useVarargs,
+                              boolean operator) {
+        for (int i = 0; i < candidates.methods.length; i++) {
+            for (Symbol sym : candidates.methods[i]) {
+                bestSoFar = selectBest(env, site, argtypes, typeargtypes,
+                                       sym, bestSoFar,
+                                       allowBoxing,
+                                       useVarargs,
+                                       operator);
+            }
+            if (candidates.interfaces[i].length > 0) {
+                Symbol concrete = methodNotFound;
+                if ((bestSoFar.flags() & ABSTRACT) == 0)
+                    concrete = bestSoFar;
+                for (MethodCandidates ic : candidates.interfaces[i]) {
+                    bestSoFar = findMethod(env, site, argtypes, typeargtypes,
+                                           ic, bestSoFar,
+                                           allowBoxing, useVarargs, operator);
+                }
+                if (concrete != bestSoFar &&
+                    concrete.kind < ERR  && bestSoFar.kind < ERR &&
+                    types.isSubSignature(concrete.type, bestSoFar.type))
+                    bestSoFar = concrete;
+            }
+        }
+        return bestSoFar;
+    }
+
+    /** The candidates findMethod considers for a method named name in
+     *  class c, or null if they may still change.  They are kept once
+     *  all classes searched are completed and attributed; from then on
+     *  only synthetic members, which are never candidates, are added.
+     */
+    MethodCandidates methodCandidates(TypeSymbol c, Name name) {
+        Map<Name, MethodCandidates> cache = methodCandidates.get(c);
+        if (cache == null) {
+            cache = new HashMap<Name, MethodCandidates>();
+            methodCandidates.put(c, cache);
+        }
+        MethodCandidates candidates = cache.get(name);
+        if (candidates == null) {
+            candidates = findCandidates(c, name);
+            if (candidates != null)
+                cache.put(name, candidates);
+        }
+        return candidates;
+    }
+    // where
+        private MethodCandidates findCandidates(TypeSymbol start, Name name) {
+            ListBuffer<Symbol[]> methods = new ListBuffer<Symbol[]>();
+            ListBuffer<MethodCandidates[]> interfaces = new ListBuffer<MethodCandidates[]>();
+            boolean abstractok = true;
+            for (Type ct = start.type; ct.tag == CLASS; ct = types.supertype(ct)) {
+                ClassSymbol c = (ClassSymbol)ct.tsym;
+                if ((c.flags() & (ABSTRACT | INTERFACE | ENUM)) == 0)
+                    abstractok = false;
+                if (c.completer != null || (c.flags_field & UNATTRIBUTED) != 0)
+                    return null;
+                ListBuffer<Symbol> ms = new ListBuffer<Symbol>();
+                for (Scope.Entry e = c.members().lookup(name);
+                     e.scope != null;
+                     e = e.next()) {
+                    if (e.sym.kind == MTH &&
+                        (e.sym.flags_field & SYNTHETIC) == 0)
+                        ms.append(e.sym);
+                }
+                methods.append(ms.toArray(new Symbol[ms.length()]));
+                MethodCandidates[] is = noCandidates;
+                if (abstractok) {
+                    List<Type> l = types.interfaces(c.type);
+                    is = new MethodCandidates[l.length()];
+                    for (int i = 0; l.nonEmpty(); l = l.tail, i++) {
+                        is[i] = methodCandidates(l.head.tsym, name);
+                        if (is[i] == null)
+                            return null;
+                    }
+                }
+                interfaces.append(is);
+            }
+            return new MethodCandidates(
+                methods.toArray(new Symbol[methods.length()][]),
+                interfaces.toArray(new MethodCandidates[interfaces.length()][]));
+        }
+
+    private static final MethodCandidates[] noCandidates = new MethodCandidates[0];
+
+    /** The method candidates for each class and name.
+     */
+    private final Map<TypeSymbol, Map<Name, MethodCandidates>> methodCandidates =
+        new HashMap<TypeSymbol, Map<Name, MethodCandidates>>();
+
+    /** The non-synthetic methods of a given name in a class and its
+     *  superclasses, one array per class in the order findMethod visits
+     *  them.  For each class whose superinterfaces are searched as well,
+     *  the candidates of those interfaces are kept alongside.
+     */
+    static class MethodCandidates {
+        final Symbol[][] methods;
+        final MethodCandidates[][] interfaces;
+
+        MethodCandidates(Symbol[][] methods, MethodCandidates[][] interfaces) {
+            this.methods = methods;
+            this.interfaces = interfaces;
+        }
+    }
+
     /** Find unqualified method matching given name, type and value arguments.
      *  @param env       The current environment.
      *  @param name      The method's name.
@@ -960,22 +1102,90 @@ public class Resolve {
         }
 
         if (env.tree.getTag() != JCTree.IMPORT) {
-            sym = findGlobalType(env, env.toplevel.namedImportScope, name);
+            sym = findGlobalType(env, name);
             if (sym.exists()) return sym;
             else if (sym.kind < bestSoFar.kind) bestSoFar = sym;
+        }
 
-            sym = findGlobalType(env, env.toplevel.packge.members(), name);
-            if (sym.exists()) return sym;
-            else if (sym.kind < bestSoFar.kind) bestSoFar = sym;
+        return bestSoFar;
+    }
 
-            sym = findGlobalType(env, env.toplevel.starImportScope, name);
-            if (sym.exists()) return sym;
-            else if (sym.kind < bestSoFar.kind) bestSoFar = sym;
+    /** Find a type in the named imports, the package and the imports on
+     *  demand of the compilation unit of env, in that order.  Results
+     *  that do not depend on env are kept per compilation unit until
+     *  one of those scopes changes.
+     *  @param env       The current environment.
+     *  @param name      The type's name.
+     */
+    Symbol findGlobalType(Env<AttrContext> env, Name name) {
+        JCCompilationUnit toplevel = env.toplevel;
+        Scope members = toplevel.packge.members();
+        GlobalTypes cache = globalTypes.get(toplevel);
+        if (cache == null || !cache.isCurrent(toplevel, members)) {
+            cache = new GlobalTypes(toplevel, members);
+            globalTypes.put(toplevel, cache);
+        }
+        Symbol sym = cache.types.get(name);
+        // a class loaded by its flat name may have become a member class
+        if (sym != null && (sym.kind != TYP || sym.owner.kind == PCK))
+            return sym;
+
+        Symbol bestSoFar = typeNotFound;
+        Scope[] scopes = { toplevel.namedImportScope, members, toplevel.starImportScope };
+        for (Scope scope : scopes) {
+            sym = findGlobalType(env, scope, name);
+            if (sym.exists()) {
+                bestSoFar = sym;
+                break;
+            } else if (sym.kind < bestSoFar.kind) {
+                bestSoFar = sym;
+            }
         }
 
+        boolean cacheable;
+        if (bestSoFar.kind == TYP) {
+            cacheable = bestSoFar.owner.kind == PCK &&
+                ((bestSoFar.flags() & PUBLIC) != 0 || bestSoFar.owner == toplevel.packge);
+        } else {
+            cacheable = bestSoFar == typeNotFound;
+            for (Scope scope : scopes)
+                cacheable &= scope.lookup(name).scope == null;
+        }
+        if (cacheable)
+            cache.types.put(name, bestSoFar);
         return bestSoFar;
     }
 
+    /** The global types found for each compilation unit.
+     */
+    private final Map<JCCompilationUnit, GlobalTypes> globalTypes =
+        new HashMap<JCCompilationUnit, GlobalTypes>();
+
+    /** The types found for the simple names used in a compilation unit,
+     *  valid while its named import, package and on demand import scopes
+     *  have the entries they had when the first type was found.  Only
+     *  top level classes accessible from anywhere in the unit, and names
+     *  with no entry in any of the scopes, are kept.
+     */
+    private static class GlobalTypes {
+        final Scope.Entry namedImports;
+        final Scope.Entry packageMembers;
+        final Scope.Entry starImports;
+        final Map<Name, Symbol> types = new HashMap<Name, Symbol>();
+
+        GlobalTypes(JCCompilationUnit toplevel, Scope members) {
+            namedImports = toplevel.namedImportScope.elems;
+            packageMembers = members.elems;
+            starImports = toplevel.starImportScope.elems;
+        }
+
+        boolean isCurrent(JCCompilationUnit toplevel, Scope members) {
+            return namedImports == toplevel.namedImportScope.elems &&
+                packageMembers == members.elems &&
+                starImports == toplevel.starImportScope.elems;
+        }
+    }
+
     /** Find an unqualified identifier which matches a specified kind set.
      *  @param env       The current environment.
      *  @param name      The indentifier's name.
@@ -27,6 +27,7 @@ package com.sun.tools.javac.file;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URI;
@@ -69,6 +70,44 @@ public abstract class BaseFileObject implements JavaFileObject {
         return new InputStreamReader(openInputStream(), getDecoder(ignoreEncodingErrors));
     }
 
+    /** Read the whole content of this file into buf, or into a larger
+     *  buffer if buf is too small, and return the buffer holding it.
+     *  Subclasses that know the size of their content read it in place
+     *  instead of through an input stream.
+     */
+    public byte[] readContent(byte[] buf) throws IOException {
+        InputStream in = openInputStream();
+        try {
+            buf = ensureCapacity(buf, in.available());
+            int bp = 0;
+            int r = in.read(buf);
+            while (r != -1) {
+                bp += r;
+                buf = ensureCapacity(buf, bp + 1);
+                r = in.read(buf, bp, buf.length - bp);
+            }
+            return buf;
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Return the length of the content of this file, or -1 if it is
+     *  not known without reading the content.
+     */
+    public long getContentLength() {
+        return -1;
+    }
+
+    protected static byte[] ensureCapacity(byte[] buf, int needed) {
+        if (buf.length < needed) {
+            byte[] old = buf;
+            buf = new byte[Integer.highestOneBit(needed) << 1];
+            System.arraycopy(old, 0, buf, 0, old.length);
+        }
+        return buf;
+    }
+
     protected CharsetDecoder getDecoder(boolean ignoreEncodingErrors) {
         throw new UnsupportedOperationException();
     }
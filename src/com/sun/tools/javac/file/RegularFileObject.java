@@ -38,6 +38,7 @@ import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.CharsetDecoder;
 
 import javax.tools.JavaFileObject;
@@ -97,6 +98,24 @@ public class RegularFileObject extends BaseFileObject {
         return new FileInputStream(file);
     }
 
+    @Override
+    public byte[] readContent(byte[] buf) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("file too large: " + file);
+            buf = ensureCapacity(buf, (int) size);
+            ByteBuffer bb = ByteBuffer.wrap(buf, 0, (int) size);
+            while (bb.hasRemaining() && channel.read(bb) != -1)
+                ;
+            return buf;
+        } finally {
+            in.close();
+        }
+    }
+
     //@Override
     public OutputStream openOutputStream() throws IOException {
         ensureParentDirectoriesExist();
@@ -138,6 +157,11 @@ public class RegularFileObject extends BaseFileObject {
         return file.lastModified();
     }
 
+    @Override
+    public long getContentLength() {
+        return file.length();
+    }
+
     //@Override
     public boolean delete() {
         return file.delete();
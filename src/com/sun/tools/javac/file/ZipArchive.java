@@ -235,6 +235,11 @@ public class ZipArchive implements Archive {
             return entry.getTime();
         }
 
+        @Override
+        public long getContentLength() {
+            return entry.getSize();
+        }
+
         //@Override
         public boolean delete() {
             throw new UnsupportedOperationException();
@@ -569,6 +569,45 @@ public class ZipFileIndex {
         }
     }
 
+    /**
+     * Read the contents of entry into buffer, or into a new buffer if it is
+     * too small, and return the buffer holding the contents.  Entries that
+     * are stored uncompressed are read straight into the buffer.
+     */
+    byte[] readInto(Entry entry, byte[] buffer) throws IOException {
+        lock.lock();
+        try {
+            openFile();
+            try {
+                byte[] header = getHeader(entry);
+                zipRandomFile.skipBytes(get2ByteLittleEndian(header, 26) + get2ByteLittleEndian(header, 28));
+                int size = entry.size;
+                if (buffer.length < size)
+                    buffer = new byte[Integer.highestOneBit(size) << 1];
+                if (get2ByteLittleEndian(header, 8) == 0) {
+                    zipRandomFile.readFully(buffer, 0, size);
+                } else {
+                    int csize = entry.compressedSize;
+                    if (compressedBuf == null || compressedBuf.length < csize)
+                        compressedBuf = new byte[Integer.highestOneBit(csize) << 1];
+                    zipRandomFile.readFully(compressedBuf, 0, csize);
+                    if (inflate(compressedBuf, csize, buffer, size) != size)
+                        throw new ZipException("corrupted zip file");
+                }
+                return buffer;
+            } finally {
+                closeFile();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** The buffer compressed entries are read into by readInto.
+     */
+    private byte[] compressedBuf;
+
     private byte[] readBytes(Entry entry) throws IOException {
         byte[] header = getHeader(entry);
         int csize = entry.compressedSize;
@@ -640,6 +679,10 @@ public class ZipFileIndex {
    */
     private static Inflater inflater;
     private int inflate(byte[] src, byte[] dest) {
+        return inflate(src, src.length, dest, dest.length);
+    }
+
+    private int inflate(byte[] src, int srcLen, byte[] dest, int destLen) {
 
         // construct the inflater object or reuse an existing one
         if (inflater == null)
@@ -647,9 +690,9 @@ public class ZipFileIndex {
 
         synchronized (inflater) {
             inflater.reset();
-            inflater.setInput(src);
+            inflater.setInput(src, 0, srcLen);
             try {
-                return inflater.inflate(dest);
+                return inflater.inflate(dest, 0, destLen);
             } catch (DataFormatException ex) {
                 return -1;
             }
@@ -152,6 +152,12 @@ public class ZipFileIndexArchive implements Archive {
             return inputStream;
         }
 
+        @Override
+        public byte[] readContent(byte[] buf) throws IOException {
+            assert entry != null; // see constructor
+            return zfIndex.readInto(entry, buf);
+        }
+
         //@Override
         public OutputStream openOutputStream() throws IOException {
             throw new UnsupportedOperationException();
@@ -190,6 +196,11 @@ public class ZipFileIndexArchive implements Archive {
             return entry.getLastModified();
         }
 
+        @Override
+        public long getContentLength() {
+            return entry.size;
+        }
+
         //@Override
         public boolean delete() {
             throw new UnsupportedOperationException();
@@ -533,6 +533,8 @@ implements CRTFlags {
             if (tree == null) return Position.NOPOS;
             if (tree.getTag() == JCTree.BLOCK)
                 return ((JCBlock) tree).endpos;
+            if (endPositions instanceof EndPosTable)
+                return ((EndPosTable) endPositions).getEndPos(tree);
             Integer endpos = endPositions.get(tree);
             if (endpos != null)
                 return endpos.intValue();
@@ -108,7 +108,7 @@ public class ClassFile {
      *  converting '/' to '.'.
      */
     public static byte[] internalize(Name name) {
-        return internalize(name.table.names, name.index, name.len);
+        return internalize(name.table.bytes(), name.index, name.len);
     }
 
     /** Return external representation of buf[offset..offset+len-1],
@@ -128,7 +128,7 @@ public class ClassFile {
      *  converting '/' to '.'.
      */
     public static byte[] externalize(Name name) {
-        return externalize(name.table.names, name.index, name.len);
+        return externalize(name.table.bytes(), name.index, name.len);
     }
 
 /************************************************************************
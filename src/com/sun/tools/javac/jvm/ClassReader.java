@@ -27,11 +27,14 @@ package com.sun.tools.javac.jvm;
 
 import java.net.URISyntaxException;
 import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.nio.CharBuffer;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import javax.lang.model.SourceVersion;
@@ -103,6 +106,11 @@ public class ClassReader extends ClassFile implements Completer {
      */
     public boolean saveParameterNames;
 
+    /** Switch: read the fields and methods of a class on first access
+     *  to its members instead of when the class is completed.
+     */
+    boolean lazyMembers;
+
     /**
      * Switch: cache completion failures unless -XDdev is used
      */
@@ -162,9 +170,33 @@ public class ClassReader extends ClassFile implements Completer {
     protected Symbol currentOwner = null;
 
     /** The buffer containing the currently read class file.
+     *  This may be an array owned by the shared platform class cache,
+     *  in which case it must not be written to.
      */
     byte[] buf = new byte[0x0fff0];
 
+    /** The scratch buffer class files are read into.
+     */
+    private byte[] readBuf = buf;
+
+    /** The location each class file was found in, until it is read.
+     *  Platform class files may be shared with other compilations in
+     *  this process, and class path jars may be read from their
+     *  signature index.  Cleared by clearClassFileLocations().
+     */
+    private final Map<JavaFileObject, Location> classFileLocations =
+        new IdentityHashMap<JavaFileObject, Location>();
+
+    /** Share platform class files with other compilations in this
+     *  process, set by -XDplatformClassCache.
+     */
+    private boolean platformClassCache;
+
+    /** The class path signature indexes, or null if class files are
+     *  always read from the class path itself.
+     */
+    private ClassSignatureIndex.Cache classSignatureCache;
+
     /** The current input pointer.
      */
     int bp;
@@ -247,6 +279,12 @@ public class ClassReader extends ClassFile implements Completer {
         allowVarargs     = source.allowVarargs();
         allowAnnotations = source.allowAnnotations();
         saveParameterNames = options.get("save-parameter-names") != null;
+        // the signature index has no Code attributes to read parameter names from
+        String sigCache = options.get("classSignatureCache");
+        if (sigCache != null && !readAllOfClassFile && !saveParameterNames)
+            classSignatureCache = new ClassSignatureIndex.Cache(new File(sigCache));
+        platformClassCache = options.get("platformClassCache") != null;
+        lazyMembers = options.get("lazyMembers") != null;
         cacheCompletionFailure = options.get("dev") == null;
         preferSource = "source".equals(options.get("-Xprefer"));
 
@@ -525,7 +563,7 @@ public class ClassReader extends ClassFile implements Completer {
     Type sigToType(Name sig) {
         return sig == null
             ? null
-            : sigToType(sig.table.names, sig.index, sig.len);
+            : sigToType(sig.table.bytes(), sig.index, sig.len);
     }
 
     /** Convert signature to type, where signature is a byte array segment.
@@ -748,7 +786,7 @@ public class ClassReader extends ClassFile implements Completer {
     /** Convert signature to type parameters, where signature is a name.
      */
     List<Type> sigToTypeParams(Name name) {
-        return sigToTypeParams(name.table.names, name.index, name.len);
+        return sigToTypeParams(name.table.bytes(), name.index, name.len);
     }
 
     /** Convert signature to type parameters, where signature is a byte
@@ -951,6 +989,7 @@ public class ClassReader extends ClassFile implements Completer {
         ClassSymbol c = readClassSymbol(nextChar());
         NameAndType nt = (NameAndType)readPool(nextChar());
 
+        c.completeMembers();
         MethodSymbol m = findMethod(nt, c.members_field, self.flags());
         if (nt != null && m == null)
             throw badClassFile("bad.enclosing.method", self);
@@ -1643,6 +1682,7 @@ public class ClassReader extends ClassFile implements Completer {
 
         // allocate scope for members
         c.members_field = new Scope(c);
+        c.membersCompleter = null;
 
         // prepare type variable table
         typevars = typevars.dup(currentOwner);
@@ -1669,6 +1709,7 @@ public class ClassReader extends ClassFile implements Completer {
         char methodCount = nextChar();
         for (int i = 0; i < methodCount; i++) skipMember();
         readClassAttrs(c);
+        int endbp = bp;
 
         if (readAllOfClassFile) {
             for (int i = 1; i < poolObj.length; i++) readPool(i);
@@ -1691,12 +1732,74 @@ public class ClassReader extends ClassFile implements Completer {
         if (ct.interfaces_field == null)
             ct.interfaces_field = is.reverse();
 
-        if (fieldCount != nextChar()) assert false;
+        if (lazyMembers)
+            c.membersCompleter = new MembersCompleter(bp, endbp);
+        else
+            readMembers(c);
+
+        typevars = typevars.leave();
+    }
+
+    /** Read the fields and methods of class `c' and enter them in its scope.
+     */
+    void readMembers(ClassSymbol c) {
+        char fieldCount = nextChar();
         for (int i = 0; i < fieldCount; i++) enterMember(c, readField());
-        if (methodCount != nextChar()) assert false;
+        char methodCount = nextChar();
         for (int i = 0; i < methodCount; i++) enterMember(c, readMethod());
+    }
 
-        typevars = typevars.leave();
+    /** Reads the fields and methods of a class when its members are first
+     *  looked up, from the class file contents retained at completion.
+     *  The reader state is saved and restored, so members may be read
+     *  while another class file is being read.
+     */
+    class MembersCompleter implements Completer {
+        final JavaFileObject classfile = currentClassFile;
+        final int[] idx = poolIdx;
+        final Object[] objs = poolObj;
+        final byte[] bytes;
+        final int start;
+
+        MembersCompleter(int start, int end) {
+            // the scratch buffer is reused for the next class file
+            this.bytes = (buf == readBuf) ? Arrays.copyOf(buf, end) : buf;
+            this.start = start;
+        }
+
+        public void complete(Symbol sym) throws CompletionFailure {
+            ClassSymbol c = (ClassSymbol)sym;
+            JavaFileObject prevClassFile = currentClassFile;
+            Symbol prevOwner = currentOwner;
+            byte[] prevBuf = buf;
+            int prevBp = bp;
+            int[] prevIdx = poolIdx;
+            Object[] prevObjs = poolObj;
+            boolean prevFilling = filling;
+            currentClassFile = classfile;
+            currentOwner = c;
+            buf = bytes;
+            bp = start;
+            poolIdx = idx;
+            poolObj = objs;
+            filling = true;
+            typevars = typevars.dup(c);
+            try {
+                enterTypevars(c);
+                readMembers(c);
+            } finally {
+                typevars = typevars.leave();
+                currentClassFile = prevClassFile;
+                currentOwner = prevOwner;
+                buf = prevBuf;
+                bp = prevBp;
+                poolIdx = prevIdx;
+                poolObj = prevObjs;
+                filling = prevFilling;
+            }
+            if (!filling && !suppressFlush)
+                annotate.flush(); // finish attaching annotations
+        }
     }
 
     /** Read inner class info. For each inner/outer pair allocate a
@@ -1877,6 +1980,7 @@ public class ClassReader extends ClassFile implements Completer {
         if (sym.kind == TYP) {
             ClassSymbol c = (ClassSymbol)sym;
             c.members_field = new Scope.ErrorScope(c); // make sure it's always defined
+            c.membersCompleter = null;
             boolean suppressFlush = this.suppressFlush;
             this.suppressFlush = true;
             try {
@@ -1952,7 +2056,19 @@ public class ClassReader extends ClassFile implements Completer {
                     filling = true;
                     try {
                         bp = 0;
-                        buf = readInputStream(buf, classfile.openInputStream());
+                        Location loc = classFileLocations.remove(classfile);
+                        byte[] signature = null;
+                        if (loc == CLASS_PATH && classSignatureCache != null)
+                            signature = classSignatureCache.read(classfile.toUri());
+                        if (loc == PLATFORM_CLASS_PATH && platformClassCache) {
+                            buf = PlatformClassCache.get(classfile);
+                        } else if (signature != null) {
+                            buf = signature;
+                        } else if (classfile instanceof BaseFileObject) {
+                            buf = readBuf = ((BaseFileObject)classfile).readContent(readBuf);
+                        } else {
+                            buf = readBuf = readInputStream(readBuf, classfile.openInputStream());
+                        }
                         readClassFile(c);
                         if (!missingTypeVariables.isEmpty() && !foundTypeVariables.isEmpty()) {
                             List<Type> missing = missingTypeVariables;
@@ -2027,6 +2143,105 @@ public class ClassReader extends ClassFile implements Completer {
             }
             return buf;
         }
+
+    /**
+     * The contents of platform class files, shared by all compilations
+     * in this process, such as those run by the compile server or by
+     * repeated JavacTool tasks.  Platform classes do not change while
+     * the process runs, so a class file is read and inflated from the
+     * boot class path only once.  Entries are keyed by URI and checked
+     * against the file's length and last modified time, and are softly
+     * referenced so that they can be reclaimed under memory pressure;
+     * the entries of reclaimed class files are removed on the next lookup.
+     *
+     * <p>Used with -XDplatformClassCache, which the compile server
+     * passes.  A single compilation reads every class file only once
+     * and is better off reading into the reused scratch buffer.
+     *
+     * <p>Only the bytes are shared.  Symbols are bound to the Name.Table
+     * and Symtab of their own Context and are mutated by completion, so
+     * every compilation still builds its own.
+     */
+    static class PlatformClassCache {
+        private static final Map<URI, Entry> cache = new HashMap<URI, Entry>();
+
+        /** The entries whose bytes have been reclaimed.
+         */
+        private static final ReferenceQueue<byte[]> cleared = new ReferenceQueue<byte[]>();
+
+        private static class Entry extends SoftReference<byte[]> {
+            final URI uri;
+            final long length;
+            final long lastModified;
+            Entry(URI uri, long length, long lastModified, byte[] bytes) {
+                super(bytes, cleared);
+                this.uri = uri;
+                this.length = length;
+                this.lastModified = lastModified;
+            }
+        }
+
+        /** Remove the entries whose bytes have been reclaimed, unless
+         *  they have been replaced already.  Called with the cache locked.
+         */
+        private static void expunge() {
+            Entry e;
+            while ((e = (Entry)cleared.poll()) != null) {
+                if (cache.get(e.uri) == e)
+                    cache.remove(e.uri);
+            }
+        }
+
+        /** Return the contents of a platform class file.  The returned
+         *  array is shared and must not be modified.
+         */
+        static byte[] get(JavaFileObject classfile) throws IOException {
+            URI uri = classfile.toUri();
+            long length = classfile instanceof BaseFileObject
+                ? ((BaseFileObject)classfile).getContentLength()
+                : -1;
+            long lastModified = classfile.getLastModified();
+            synchronized (cache) {
+                expunge();
+                Entry e = cache.get(uri);
+                byte[] bytes = (e == null || e.length != length || e.lastModified != lastModified)
+                    ? null : e.get();
+                if (bytes != null)
+                    return bytes;
+            }
+            byte[] bytes;
+            if (length >= 0 && length <= Integer.MAX_VALUE) {
+                // read straight into an array of the right size
+                bytes = ((BaseFileObject)classfile).readContent(new byte[(int)length]);
+            } else {
+                bytes = readFully(classfile.openInputStream());
+            }
+            synchronized (cache) {
+                cache.put(uri, new Entry(uri, length, lastModified, bytes));
+            }
+            return bytes;
+        }
+
+        private static byte[] readFully(InputStream s) throws IOException {
+            try {
+                byte[] buf = new byte[Math.max(s.available(), 1024)];
+                int bp = 0;
+                int r;
+                while ((r = s.read(buf, bp, buf.length - bp)) != -1) {
+                    bp += r;
+                    if (bp == buf.length)
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                return Arrays.copyOf(buf, bp);
+            } finally {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    // as in readInputStream
+                }
+            }
+        }
+    }
         /** Static factory for CompletionFailure objects.
          *  In practice, only one can be used at a time, so we share one
          *  to reduce the expense of allocating new exception objects.
@@ -2099,6 +2314,14 @@ public class ClassReader extends ClassFile implements Completer {
         return enterPackage(TypeSymbol.formFullName(name, owner));
     }
 
+    /** Forget where the class files not read yet were found, at the end
+     *  of a compilation.  Classes completed later, e.g. through the
+     *  javax.lang.model API, are read from their class file as such.
+     */
+    public void clearClassFileLocations() {
+        classFileLocations.clear();
+    }
+
     /** Include class corresponding to given class file in package,
      *  unless (1) we already have one the same kind (.class or .java), or
      *         (2) we have one of the other kind, and the given class file
@@ -2121,6 +2344,8 @@ public class ClassReader extends ClassFile implements Completer {
         ClassSymbol c = isPkgInfo
             ? p.package_info
             : (ClassSymbol) p.members_field.lookup(classname).sym;
+        if (kind == JavaFileObject.Kind.CLASS)
+            classFileLocations.put(file, currentLoc);
         if (c == null) {
             c = enterClass(classname, p);
             if (c.classfile == null) // only update the file if's it's newly created
@@ -0,0 +1,482 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.jvm;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/** A cache of the class signatures in classpath jars, along the lines
+ *  of ct.sym.
+ *
+ *  <p>The first time a jar is used, a signature file is written for it:
+ *  its class files with the Code attributes of all methods removed,
+ *  stored uncompressed one after another, behind a header holding the
+ *  jar's path, size and modification time and the offset and length of
+ *  every class.  Later compilations read that file into memory and take
+ *  signatures from it instead of inflating the full class files.  The
+ *  file is rebuilt when the jar's size or modification time changes, or
+ *  when it cannot be read.  Class files that cannot be stripped, such
+ *  as module-info.class, are left out and read from the jar.
+ *
+ *  <p>The file is not kept open or mapped, so that it can be replaced
+ *  while a compile server holds its contents.  A jar whose signature
+ *  file cannot be written is remembered, and read directly until it
+ *  changes.
+ *
+ *  <p>Enabled by -XDclassSignatureCache=directory.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ *
+ *  @see com.sun.tools.javac.sym.CreateSymbols
+ */
+public class ClassSignatureIndex {
+
+    private static final int MAGIC = 0x54435349;
+
+    private static final int VERSION = 1;
+
+    /** The signature indexes loaded by this process, by jar file,
+     *  including those of jars that could not be indexed.
+     */
+    private static final Map<File, ClassSignatureIndex> indexes = new HashMap<File, ClassSignatureIndex>();
+
+    private final long jarLength;
+
+    private final long jarLastModified;
+
+    /** Offset and length of each class in the data area, by jar entry
+     *  name, or null if the jar could not be indexed.
+     */
+    private final Map<String, int[]> entries;
+
+    private final byte[] data;
+
+    /** The start of the data area in the signature file.
+     */
+    private final int dataStart;
+
+    private ClassSignatureIndex(long jarLength, long jarLastModified, Map<String, int[]> entries,
+                                byte[] data, int dataStart) {
+        this.jarLength = jarLength;
+        this.jarLastModified = jarLastModified;
+        this.entries = entries;
+        this.data = data;
+        this.dataStart = dataStart;
+    }
+
+    /** The signature indexes used by one compilation.  Each jar is
+     *  checked against its index only the first time one of its
+     *  classes is read.
+     */
+    public static class Cache {
+        private final File cacheDir;
+
+        /** The index of each jar, by the jar's URI as it appears in
+         *  class file URIs.  Null for jars that cannot be indexed.
+         */
+        private final Map<String, ClassSignatureIndex> jars = new HashMap<String, ClassSignatureIndex>();
+
+        /** @param cacheDir the directory holding the signature files
+         */
+        public Cache(File cacheDir) {
+            this.cacheDir = cacheDir;
+        }
+
+        /** Read the signature of a class in a jar.
+         *  @param classfile the class file, as jar:file:/a/b.jar!/x/y/Z.class
+         *  @return the class file without Code attributes, or null if
+         *          the cache cannot be used
+         */
+        public byte[] read(URI classfile) {
+            if (!"jar".equals(classfile.getScheme()))
+                return null;
+            // keep the jar URI escaped; only the entry name is decoded
+            String ssp = classfile.getRawSchemeSpecificPart();
+            int sep = ssp.indexOf("!/");
+            if (sep < 0)
+                return null;
+            String jarUri = ssp.substring(0, sep);
+            ClassSignatureIndex index = jars.get(jarUri);
+            if (index == null) {
+                if (jars.containsKey(jarUri))
+                    return null;
+                try {
+                    index = forJar(cacheDir, new File(new URI(jarUri)));
+                } catch (Exception e) {
+                    index = null;
+                }
+                jars.put(jarUri, index);
+                if (index == null)
+                    return null;
+            }
+            if (index.entries == null)
+                return null;
+            String entryName = ssp.substring(sep + 2);
+            if (entryName.indexOf('%') >= 0) {
+                try {
+                    entryName = new URI("entry:" + entryName).getSchemeSpecificPart();
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+            return index.get(entryName);
+        }
+    }
+
+    private static ClassSignatureIndex forJar(File cacheDir, File jar) {
+        long jarLength = jar.length();
+        long jarLastModified = jar.lastModified();
+        synchronized (indexes) {
+            ClassSignatureIndex index = indexes.get(jar);
+            if (index != null && index.jarLength == jarLength && index.jarLastModified == jarLastModified)
+                return index;
+            try {
+                index = open(cacheDir, jar);
+            } catch (IOException e) {
+                // the cache is only an optimization; read the original class files
+                index = null;
+            } catch (RuntimeException e) {
+                index = null;
+            }
+            if (index == null) {
+                // don't try again until the jar changes
+                index = new ClassSignatureIndex(jarLength, jarLastModified, null, null, 0);
+            }
+            indexes.put(jar, index);
+            return index;
+        }
+    }
+
+    private byte[] get(String entryName) {
+        int[] slot = entries.get(entryName);
+        if (slot == null)
+            return null;
+        int start = dataStart + slot[0];
+        return Arrays.copyOfRange(data, start, start + slot[1]);
+    }
+
+    /** The signature file of a jar, named after the jar and the hash of
+     *  its absolute path, so that jars of the same name in different
+     *  directories do not collide.
+     */
+    private static File indexFile(File cacheDir, File jar) {
+        String path = jar.getAbsolutePath();
+        return new File(cacheDir, jar.getName() + "-" + Integer.toHexString(path.hashCode()) + ".sig");
+    }
+
+    private static ClassSignatureIndex open(File cacheDir, File jar) throws IOException {
+        File indexFile = indexFile(cacheDir, jar);
+        ClassSignatureIndex index = indexFile.exists() ? load(indexFile, jar) : null;
+        if (index == null) {
+            build(indexFile, jar);
+            index = load(indexFile, jar);
+        }
+        return index;
+    }
+
+    /** Read a signature file.  Return null if it does not match the jar
+     *  or is damaged, for instance truncated, so that it is rebuilt.
+     */
+    private static ClassSignatureIndex load(File indexFile, File jar) throws IOException {
+        byte[] bytes;
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+        try {
+            long size = raf.length();
+            if (size > Integer.MAX_VALUE)
+                return null;
+            bytes = new byte[(int)size];
+            raf.readFully(bytes);
+        } finally {
+            raf.close();
+        }
+        try {
+            return load(ByteBuffer.wrap(bytes), jar);
+        } catch (RuntimeException e) {
+            // read past the end (BufferUnderflowException) or a bad length
+            return null;
+        }
+    }
+
+    private static ClassSignatureIndex load(ByteBuffer data, File jar) {
+        if (data.getInt() != MAGIC || data.getInt() != VERSION)
+            return null;
+        long jarLength = data.getLong();
+        long jarLastModified = data.getLong();
+        if (jarLength != jar.length() || jarLastModified != jar.lastModified()
+            || !jar.getAbsolutePath().equals(readString(data)))
+            return null;
+        int count = data.getInt();
+        if (count < 0 || count > data.remaining())
+            return null;
+        Map<String, int[]> entries = new HashMap<String, int[]>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = readString(data);
+            int offset = data.getInt();
+            int length = data.getInt();
+            entries.put(name, new int[] {offset, length});
+        }
+        int dataStart = data.position();
+        for (int[] slot : entries.values()) {
+            if (slot[0] < 0 || slot[1] < 0 || (long)dataStart + slot[0] + slot[1] > data.limit())
+                return null;
+        }
+        return new ClassSignatureIndex(jarLength, jarLastModified, entries, data.array(), dataStart);
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xffff];
+        data.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Write the signature file of a jar.  It is written to a temporary
+     *  file first and then renamed, so that a concurrent compilation
+     *  never reads a half-written file.  The temporary file is created
+     *  before the jar is read, so that an unwritable cache fails early.
+     */
+    private static void build(File indexFile, File jar) throws IOException {
+        indexFile.getParentFile().mkdirs();
+        File tmp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+        try {
+            write(tmp, jar);
+            indexFile.delete();
+            if (!tmp.renameTo(indexFile))
+                throw new IOException("cannot create " + indexFile);
+        } finally {
+            tmp.delete(); // nothing left to delete once renamed
+        }
+    }
+
+    private static void write(File file, File jar) throws IOException {
+        long jarLength = jar.length();
+        long jarLastModified = jar.lastModified();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(header);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int count = 0;
+
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        DataOutputStream n = new DataOutputStream(names);
+        ZipFile zip = new ZipFile(jar);
+        try {
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                ZipEntry entry = e.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class"))
+                    continue;
+                byte[] stripped = stripCode(readFully(zip.getInputStream(entry)));
+                if (stripped == null) // left to be read from the jar
+                    continue;
+                writeString(n, entry.getName());
+                n.writeInt(body.size());
+                n.writeInt(stripped.length);
+                body.write(stripped);
+                count++;
+            }
+        } finally {
+            zip.close();
+        }
+
+        h.writeInt(MAGIC);
+        h.writeInt(VERSION);
+        h.writeLong(jarLength);
+        h.writeLong(jarLastModified);
+        writeString(h, jar.getAbsolutePath());
+        h.writeInt(count);
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            // offsets are relative to the data area
+            header.writeTo(out);
+            names.writeTo(out);
+            body.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Remove the Code attributes of all methods, leaving the constant
+     *  pool as it is.  Compilation needs only the signatures, and Code
+     *  is usually most of a class file.  Return null if the class file
+     *  is not understood, for instance a module-info.class.
+     */
+    static byte[] stripCode(byte[] buf) {
+        try {
+            return stripCode0(buf);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static byte[] stripCode0(byte[] buf) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(buf.length);
+        int bp = 8;
+        int poolCount = getChar(buf, bp);
+        bp += 2;
+        int codeIndex = -1;
+        for (int i = 1; i < poolCount; i++) {
+            int tag = buf[bp++];
+            switch (tag) {
+            case ClassFile.CONSTANT_Utf8: {
+                int len = getChar(buf, bp);
+                if (len == 4 && buf[bp + 2] == 'C' && buf[bp + 3] == 'o' && buf[bp + 4] == 'd'
+                    && buf[bp + 5] == 'e')
+                    codeIndex = i;
+                bp += 2 + len;
+                break;
+            }
+            case ClassFile.CONSTANT_Class:
+            case ClassFile.CONSTANT_String:
+            case 16: // CONSTANT_MethodType
+            case 19: // CONSTANT_Module
+            case 20: // CONSTANT_Package
+                bp += 2;
+                break;
+            case 15: // CONSTANT_MethodHandle
+                bp += 3;
+                break;
+            case ClassFile.CONSTANT_Integer:
+            case ClassFile.CONSTANT_Float:
+            case ClassFile.CONSTANT_Fieldref:
+            case ClassFile.CONSTANT_Methodref:
+            case ClassFile.CONSTANT_InterfaceMethodref:
+            case ClassFile.CONSTANT_NameandType:
+            case 17: // CONSTANT_Dynamic
+            case 18: // CONSTANT_InvokeDynamic
+                bp += 4;
+                break;
+            case ClassFile.CONSTANT_Long:
+            case ClassFile.CONSTANT_Double:
+                bp += 8;
+                i++;
+                break;
+            default:
+                return null;
+            }
+        }
+        if (codeIndex < 0)
+            return buf;
+
+        // access_flags, this_class, super_class, interfaces
+        bp += 6;
+        bp += 2 + 2 * getChar(buf, bp);
+        bp = skipMembers(buf, bp);
+        result.write(buf, 0, bp);
+
+        int methodCount = getChar(buf, bp);
+        result.write(buf, bp, 2);
+        bp += 2;
+        for (int i = 0; i < methodCount; i++) {
+            result.write(buf, bp, 6);
+            bp += 6;
+            int attrCount = getChar(buf, bp);
+            bp += 2;
+            int kept = 0;
+            ByteArrayOutputStream attrs = new ByteArrayOutputStream();
+            for (int j = 0; j < attrCount; j++) {
+                int attrLen = getInt(buf, bp + 2);
+                if (getChar(buf, bp) != codeIndex) {
+                    attrs.write(buf, bp, 6 + attrLen);
+                    kept++;
+                }
+                bp += 6 + attrLen;
+            }
+            result.write(kept >> 8);
+            result.write(kept);
+            byte[] keptAttrs = attrs.toByteArray();
+            result.write(keptAttrs, 0, keptAttrs.length);
+        }
+        result.write(buf, bp, buf.length - bp);
+        return result.toByteArray();
+    }
+
+    /** Skip a field (or method) table, returning the position after it.
+     */
+    private static int skipMembers(byte[] buf, int bp) {
+        int count = getChar(buf, bp);
+        bp += 2;
+        for (int i = 0; i < count; i++) {
+            bp += 6;
+            int attrCount = getChar(buf, bp);
+            bp += 2;
+            for (int j = 0; j < attrCount; j++)
+                bp += 6 + getInt(buf, bp + 2);
+        }
+        return bp;
+    }
+
+    private static int getChar(byte[] buf, int bp) {
+        return ((buf[bp] & 0xFF) << 8) + (buf[bp + 1] & 0xFF);
+    }
+
+    private static int getInt(byte[] buf, int bp) {
+        return ((buf[bp] & 0xFF) << 24) + ((buf[bp + 1] & 0xFF) << 16) + ((buf[bp + 2] & 0xFF) << 8)
+            + (buf[bp + 3] & 0xFF);
+    }
+
+    private static byte[] readFully(InputStream s) throws IOException {
+        try {
+            byte[] buf = new byte[Math.max(s.available(), 1024)];
+            int bp = 0;
+            int r;
+            while ((r = s.read(buf, bp, buf.length - bp)) != -1) {
+                bp += r;
+                if (bp == buf.length)
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            return Arrays.copyOf(buf, bp);
+        } finally {
+            s.close();
+        }
+    }
+}
@@ -29,6 +29,12 @@ import java.io.*;
 import java.util.*;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.tools.JavaFileManager;
 import javax.tools.FileObject;
@@ -92,6 +98,52 @@ public class ClassWriter extends ClassFile {
      */
     boolean debugstackmap;
 
+    /** The number of threads class files are written on; if zero,
+     *  they are written by the compiling thread.  Only the file output
+     *  moves to these threads: attribution, flow analysis, desugaring,
+     *  code generation and the class file bytes stay on the compiling
+     *  thread, which they share the compiler's state with.
+     */
+    private int writeThreads;
+
+    /** The threads class files are written on, created on first use
+     *  and kept until close().
+     */
+    private ExecutorService outputThreads;
+
+    /** Told how long the output threads took to write each class file.
+     */
+    public interface OutputTimer {
+        void written(ClassSymbol c, long nanos);
+    }
+
+    /** If not null, told by flushOutput() how long each class file
+     *  took to write on an output thread.
+     */
+    public OutputTimer outputTimer;
+
+    /** The class files handed to the output threads and not yet
+     *  checked for write errors.
+     */
+    private final ListBuffer<PendingWrite> pendingWrites = new ListBuffer<PendingWrite>();
+
+    /** A class file being written on an output thread.  The result is
+     *  the IOException that prevented the write, or null.
+     */
+    private static class PendingWrite {
+        final ClassSymbol c;
+        final JavaFileObject outFile;
+        Future<IOException> result;
+        /** Wall time of the write, set on the output thread and read
+         *  after result.get().
+         */
+        long nanos;
+        PendingWrite(ClassSymbol c, JavaFileObject outFile) {
+            this.c = c;
+            this.outFile = outFile;
+        }
+    }
+
     /**
      * Target class version.
      */
@@ -182,6 +234,19 @@ public class ClassWriter extends ClassFile {
         genCrt         = options.get("-Xjcov") != null;
         debugstackmap  = options.get("debugstackmap") != null;
 
+        // a bare -XDwriteThreads uses one thread per processor
+        int setWriteThreads = 0;
+        String threads = options.get("writeThreads");
+        if (threads != null) {
+            setWriteThreads = Runtime.getRuntime().availableProcessors();
+            try {
+                setWriteThreads = Math.max(0, Integer.parseInt(threads));
+            } catch (NumberFormatException ex) {
+                // not a number; keep the default
+            }
+        }
+        writeThreads = setWriteThreads;
+
         emitSourceFile = options.get("-g:")==null || options.get("-g:source")!=null;
 
         String dumpModFlags = options.get("dumpmodifiers");
@@ -963,6 +1028,7 @@ public class ClassWriter extends ClassFile {
         if (m.code != null) {
             int alenIdx = writeAttr(names.Code);
             writeCode(m.code);
+            m.code.release();
             m.code = null; // to conserve space
             endAttr(alenIdx);
             acount++;
@@ -1454,6 +1520,13 @@ public class ClassWriter extends ClassFile {
                                                c.flatname.toString(),
                                                JavaFileObject.Kind.CLASS,
                                                c.sourcefile);
+        if (writeThreads > 0) {
+            // the class is generated here, only the file output is deferred
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(0);
+            writeClassFile(bytes, c);
+            writeLater(c, outFile, bytes);
+            return outFile;
+        }
         OutputStream out = outFile.openOutputStream();
         try {
             writeClassFile(out, c);
@@ -1472,6 +1545,87 @@ public class ClassWriter extends ClassFile {
         return outFile; // may be null if write failed
     }
 
+    /** Write the bytes of class `c' to `outFile' on an output thread.
+     */
+    private void writeLater(ClassSymbol c,
+                            final JavaFileObject outFile,
+                            final ByteArrayOutputStream bytes) {
+        if (outputThreads == null) {
+            outputThreads = Executors.newFixedThreadPool(writeThreads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "javac class writer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        final PendingWrite w = new PendingWrite(c, outFile);
+        w.result = outputThreads.submit(new Callable<IOException>() {
+            public IOException call() {
+                long start = System.nanoTime();
+                try {
+                    OutputStream out = outFile.openOutputStream();
+                    try {
+                        bytes.writeTo(out);
+                    } finally {
+                        out.close();
+                    }
+                    return null;
+                } catch (IOException ex) {
+                    outFile.delete();
+                    return ex;
+                } finally {
+                    w.nanos = System.nanoTime() - start;
+                }
+            }
+        });
+        pendingWrites.append(w);
+    }
+
+    /** Wait until the class files handed to the output threads are
+     *  written, and report those that could not be.  The threads are
+     *  kept for the next class files.
+     */
+    public void flushOutput() {
+        if (outputThreads == null)
+            return;
+        try {
+            for (PendingWrite w : pendingWrites) {
+                IOException ex = w.result.get();
+                if (outputTimer != null)
+                    outputTimer.written(w.c, w.nanos);
+                if (ex != null)
+                    log.error("class.cant.write", w.c, ex.getMessage());
+                else if (verbose)
+                    log.errWriter.println(Log.getLocalizedString("verbose.wrote.file", w.outFile));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new Abort(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException)ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error)ex.getCause();
+            throw new Abort(ex.getCause());
+        } finally {
+            pendingWrites.clear();
+        }
+    }
+
+    /** Write the pending class files and stop the output threads.
+     */
+    public void close() {
+        try {
+            flushOutput();
+        } finally {
+            if (outputThreads != null) {
+                outputThreads.shutdown();
+                outputThreads = null;
+            }
+        }
+    }
+
     /** Write class `c' to outstream `out'.
      */
     public void writeClassFile(OutputStream out, ClassSymbol c)
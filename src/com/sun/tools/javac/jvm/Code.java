@@ -81,12 +81,54 @@ public class Code {
 
     /** The code buffer.
      */
-    public byte[] code = new byte[64];
+    public byte[] code;
 
     /** the current code pointer.
      */
     public int cp = 0;
 
+    /** The spare buffers the code buffer came from and goes back to.
+     */
+    private final SpareBuffers spareBuffers;
+
+    /** Code buffers given back by release(), kept for the next methods
+     *  generated by the same Gen.  A class usually has fewer methods
+     *  than MAX_SPARE_BUFFERS, so after the first few classes code
+     *  buffers are only allocated for methods larger than any seen
+     *  before.  With -XDwriteThreads the buffers are released by the
+     *  writer threads, so taking and giving back is synchronized.
+     */
+    public static class SpareBuffers {
+        private static final int MAX_SPARE_BUFFERS = 32;
+
+        private final byte[][] buffers = new byte[MAX_SPARE_BUFFERS][];
+        private int count = 0;
+
+        synchronized byte[] take() {
+            if (count == 0)
+                return new byte[64];
+            byte[] buf = buffers[--count];
+            buffers[count] = null;
+            return buf;
+        }
+
+        synchronized void give(byte[] buf) {
+            if (count < MAX_SPARE_BUFFERS)
+                buffers[count++] = buf;
+        }
+    }
+
+    /** Give the code buffer back for reuse, once the code has been
+     *  written to a class file or discarded.  The code may not be
+     *  looked at afterwards.
+     */
+    public void release() {
+        byte[] buf = code;
+        code = null;
+        if (buf != null && spareBuffers != null)
+            spareBuffers.give(buf);
+    }
+
     /** Check the code against VM spec limits; if
      *  problems report them and return true.
      */
@@ -191,7 +233,8 @@ public class Code {
                 CRTable crt,
                 Symtab syms,
                 Types types,
-                Pool pool) {
+                Pool pool,
+                SpareBuffers spareBuffers) {
         this.meth = meth;
         this.fatcode = fatcode;
         this.lineMap = lineMap;
@@ -213,6 +256,8 @@ public class Code {
         state = new State();
         lvar = new LocalVar[20];
         this.pool = pool;
+        this.spareBuffers = spareBuffers;
+        this.code = spareBuffers != null ? spareBuffers.take() : new byte[64];
     }
 
 
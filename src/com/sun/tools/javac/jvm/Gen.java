@@ -170,6 +170,10 @@ public class Gen extends JCTree.Visitor {
      */
     private Pool pool = new Pool();
 
+    /** Code buffers of methods whose class has been written, for reuse.
+     */
+    private final Code.SpareBuffers spareCodeBuffers = new Code.SpareBuffers();
+
     /** Code buffer, set by genMethod.
      */
     private Code code;
@@ -961,7 +965,10 @@ public class Gen extends JCTree.Visitor {
         private int initCode(JCMethodDecl tree, Env<GenContext> env, boolean fatcode) {
             MethodSymbol meth = tree.sym;
 
-            // Create a new code structure.
+            // Create a new code structure, dropping the one of an
+            // earlier attempt, if any.
+            if (meth.code != null)
+                meth.code.release();
             meth.code = code = new Code(meth,
                                         fatcode,
                                         lineDebugInfo ? toplevel.lineMap : null,
@@ -972,7 +979,8 @@ public class Gen extends JCTree.Visitor {
                                                : null,
                                         syms,
                                         types,
-                                        pool);
+                                        pool,
+                                        spareCodeBuffers);
             items = new Items(pool, code, syms, types);
             if (code.debugCode)
                 System.err.println(meth + " for body " + tree);
@@ -2225,8 +2233,12 @@ public class Gen extends JCTree.Visitor {
             if (nerrs != 0) {
                 // if errors, discard code
                 for (List<JCTree> l = cdef.defs; l.nonEmpty(); l = l.tail) {
-                    if (l.head.getTag() == JCTree.METHODDEF)
-                        ((JCMethodDecl) l.head).sym.code = null;
+                    if (l.head.getTag() == JCTree.METHODDEF) {
+                        MethodSymbol meth = ((JCMethodDecl) l.head).sym;
+                        if (meth.code != null)
+                            meth.code.release();
+                        meth.code = null;
+                    }
                 }
             }
             cdef.defs = List.nil(); // discard trees
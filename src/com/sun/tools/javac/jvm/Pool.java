@@ -51,18 +51,27 @@ public class Pool {
      */
     Object[] pool;
 
-    /** A hashtable containing all constants in the pool.
+    /** A hashtable containing all constants in the pool: an open
+     *  addressing table whose keys are compared with equals, as in a
+     *  HashMap, with the pool index of keys[i] in indices[i].  Gen uses
+     *  one pool for all the classes it generates, so the arrays are kept
+     *  across reset() and no entry or Integer is allocated per constant.
      */
-    Map<Object,Integer> indices;
+    private Object[] keys;
+    private int[] indices;
 
     /** Construct a pool with given number of elements and element array.
      */
     public Pool(int pp, Object[] pool) {
         this.pp = pp;
         this.pool = pool;
-        this.indices = new HashMap<Object,Integer>(pool.length);
+        int capacity = 16;
+        while (capacity < pool.length * 2)
+            capacity <<= 1;
+        this.keys = new Object[capacity];
+        this.indices = new int[capacity];
         for (int i = 1; i < pp; i++) {
-            if (pool[i] != null) indices.put(pool[i], i);
+            if (pool[i] != null) enter(pool[i], i);
         }
     }
 
@@ -81,8 +90,9 @@ public class Pool {
     /** Remove everything from this pool.
      */
     public void reset() {
+        if (pp > 1)
+            Arrays.fill(keys, null);
         pp = 1;
-        indices.clear();
     }
 
     /** Double pool buffer in size.
@@ -103,11 +113,11 @@ public class Pool {
         else if (value instanceof VarSymbol)
             value = new Variable((VarSymbol)value);
 //      assert !(value instanceof Type.TypeVar);
-        Integer index = indices.get(value);
-        if (index == null) {
+        int index = get(value);
+        if (index < 0) {
 //          System.err.println("put " + value + " " + value.getClass());//DEBUG
             index = pp;
-            indices.put(value, index);
+            enter(value, index);
             if (pp == pool.length) doublePool();
             pool[pp++] = value;
             if (value instanceof Long || value instanceof Double) {
@@ -115,15 +125,55 @@ public class Pool {
                 pool[pp++] = null;
             }
         }
-        return index.intValue();
+        return index;
     }
 
     /** Return the given object's index in the pool,
      *  or -1 if object is not in there.
      */
     public int get(Object o) {
-        Integer n = indices.get(o);
-        return n == null ? -1 : n.intValue();
+        int mask = keys.length - 1;
+        for (int i = hash(o) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(o))
+                return indices[i];
+        }
+        return -1;
+    }
+
+    /** Add a constant that is not in the table yet.
+     */
+    private void enter(Object value, int index) {
+        // keep the table at most half full; pp counts the entries
+        if (pp * 2 >= keys.length)
+            growTable();
+        int mask = keys.length - 1;
+        int i = hash(value) & mask;
+        while (keys[i] != null)
+            i = (i + 1) & mask;
+        keys[i] = value;
+        indices[i] = index;
+    }
+
+    private void growTable() {
+        Object[] oldKeys = keys;
+        int[] oldIndices = indices;
+        keys = new Object[oldKeys.length * 2];
+        indices = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                indices[i] = oldIndices[j];
+            }
+        }
+    }
+
+    private static int hash(Object o) {
+        int h = o.hashCode();
+        return h ^ (h >>> 16);
     }
 
     static class Method extends DelegatedSymbol {
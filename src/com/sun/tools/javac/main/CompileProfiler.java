@@ -0,0 +1,331 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.main;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+/** Wall clock time, CPU time and allocated bytes of a compilation,
+ *  per phase and per source file.
+ *
+ *  <p>Phases may nest: completing a class from the sourcepath during
+ *  attribution parses it, and desugaring first attributes and flow
+ *  analyzes the classes it depends on.  Time is charged only to the
+ *  innermost running phase, so the phases add up to the total.  CPU
+ *  time and allocations come from the current thread's ThreadMXBean
+ *  and are recorded as 0 where it does not support them.
+ *
+ *  <p>With -XDwriteThreads, WRITE covers generating the class file and
+ *  handing it to an output thread, and OUTPUT is the wall time the
+ *  output threads took to write it.  OUTPUT runs alongside the other
+ *  phases, so it is not part of the time they add up to.
+ *
+ *  <p>-XDprofile prints JSON to the log.  -XDprofileFile=file writes
+ *  to the file instead, CSV if its name ends in .csv and JSON otherwise.
+ *  Records are per source file: the classes of one file share a record.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ *
+ *  @see JavaCompiler
+ */
+public class CompileProfiler {
+
+    /** The recorded phases.  Trace injection happens while parsing and
+     *  is part of PARSE; MIRROR is writing the injected source to the
+     *  -srcPath mirror directory; OUTPUT is recorded only with
+     *  -XDwriteThreads.
+     */
+    public enum Phase {
+        PARSE, MIRROR, ENTER, ATTR, FLOW, DESUGAR, GENERATE, WRITE, OUTPUT;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    /** The unit name of records that belong to no single source file,
+     *  such as enter.
+     */
+    static final String ALL = "*";
+
+    /** Counters per record: wall time, CPU time, allocated bytes.
+     */
+    private static final int COUNTERS = 3;
+
+    private final String output;
+
+    private final ThreadMXBean threads;
+
+    private final boolean cpuTime;
+
+    private final Allocations allocations;
+
+    /** The counters of each source file, COUNTERS per phase in the
+     *  order of Phase.
+     */
+    private final Map<String, long[]> records = new LinkedHashMap<String, long[]>();
+
+    private Phase[] phases = new Phase[8];
+
+    private String[] units = new String[8];
+
+    private int depth = 0;
+
+    private long lastWall;
+
+    private long lastCpu;
+
+    private long lastAllocated;
+
+    private boolean reported = false;
+
+    /** @param output the value of -XDprofileFile, or null to print
+     *  to the log
+     */
+    public CompileProfiler(String output) {
+        this.output = output;
+        threads = ManagementFactory.getThreadMXBean();
+        cpuTime = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        allocations = Allocations.create(threads);
+    }
+
+    /** The unit name of a source file.
+     */
+    static String unit(JavaFileObject file) {
+        return file == null ? ALL : file.getName();
+    }
+
+    /** Start a phase; the running phase is suspended until it ends.
+     */
+    public void begin(Phase phase, JavaFileObject file) {
+        charge();
+        if (depth == phases.length) {
+            Phase[] newPhases = new Phase[depth * 2];
+            System.arraycopy(phases, 0, newPhases, 0, depth);
+            phases = newPhases;
+            String[] newUnits = new String[depth * 2];
+            System.arraycopy(units, 0, newUnits, 0, depth);
+            units = newUnits;
+        }
+        phases[depth] = phase;
+        units[depth] = unit(file);
+        depth++;
+    }
+
+    /** End the most recently started phase.
+     */
+    public void end() {
+        charge();
+        depth--;
+        units[depth] = null;
+    }
+
+    /** Add wall time measured on another thread, which has no CPU time
+     *  or allocations recorded.
+     */
+    public void add(Phase phase, JavaFileObject file, long wallNanos) {
+        record(unit(file))[phase.ordinal() * COUNTERS] += wallNanos;
+    }
+
+    /** Charge the time since the last call to the running phase.
+     */
+    private void charge() {
+        long wall = System.nanoTime();
+        long cpu = cpuTime ? threads.getCurrentThreadCpuTime() : 0;
+        long allocated = allocations == null ? 0 : allocations.current();
+        if (depth > 0) {
+            long[] record = record(units[depth - 1]);
+            int i = phases[depth - 1].ordinal() * COUNTERS;
+            record[i] += wall - lastWall;
+            record[i + 1] += cpu - lastCpu;
+            record[i + 2] += allocated - lastAllocated;
+        }
+        lastWall = wall;
+        lastCpu = cpu;
+        lastAllocated = allocated;
+    }
+
+    private long[] record(String unit) {
+        long[] record = records.get(unit);
+        if (record == null) {
+            record = new long[Phase.values().length * COUNTERS];
+            records.put(unit, record);
+        }
+        return record;
+    }
+
+    /** The sum of all records.
+     */
+    long[] total() {
+        long[] total = new long[Phase.values().length * COUNTERS];
+        for (long[] record : records.values()) {
+            for (int i = 0; i < total.length; i++)
+                total[i] += record[i];
+        }
+        return total;
+    }
+
+    /** Write the results.  Later calls do nothing: every compiler of
+     *  an annotation processing run shares the profiler and reports it
+     *  when closed.
+     *  @param out where to print when no file was given
+     */
+    public void report(PrintWriter out) throws IOException {
+        if (reported)
+            return;
+        reported = true;
+        if (output == null) {
+            writeJson(out);
+            out.flush();
+            return;
+        }
+        Writer w = new BufferedWriter(new FileWriter(output));
+        try {
+            if (output.endsWith(".csv"))
+                writeCsv(w);
+            else
+                writeJson(w);
+        } finally {
+            w.close();
+        }
+    }
+
+    /** One row per phase of each source file,
+     *  unit,phase,wall_ns,cpu_ns,alloc_bytes, followed by the
+     *  per-phase sums under the unit name total.
+     */
+    void writeCsv(Writer w) throws IOException {
+        w.write("unit,phase,wall_ns,cpu_ns,alloc_bytes\n");
+        for (Map.Entry<String, long[]> e : records.entrySet())
+            writeCsvRows(w, csvString(e.getKey()), e.getValue());
+        writeCsvRows(w, "total", total());
+    }
+
+    private static void writeCsvRows(Writer w, String unit, long[] record) throws IOException {
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal() * COUNTERS;
+            if (record[i] == 0 && record[i + 1] == 0 && record[i + 2] == 0)
+                continue;
+            w.write(unit + "," + phase.key() + "," + record[i] + "," + record[i + 1] + "," + record[i + 2] + "\n");
+        }
+    }
+
+    private static String csvString(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0)
+            return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    /** {"total": {phase: {...}}, "units": [{"unit": file, "phases":
+     *  {phase: {"wall_ns": .., "cpu_ns": .., "alloc_bytes": ..}}}]}
+     */
+    void writeJson(Writer w) throws IOException {
+        w.write("{\n  \"total\": ");
+        writeJsonPhases(w, total());
+        w.write(",\n  \"units\": [");
+        boolean first = true;
+        for (Map.Entry<String, long[]> e : records.entrySet()) {
+            w.write(first ? "\n    {\"unit\": " : ",\n    {\"unit\": ");
+            first = false;
+            w.write(jsonString(e.getKey()));
+            w.write(", \"phases\": ");
+            writeJsonPhases(w, e.getValue());
+            w.write("}");
+        }
+        w.write("\n  ]\n}\n");
+    }
+
+    private static void writeJsonPhases(Writer w, long[] record) throws IOException {
+        w.write("{");
+        boolean first = true;
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal() * COUNTERS;
+            if (record[i] == 0 && record[i + 1] == 0 && record[i + 2] == 0)
+                continue;
+            w.write(first ? "\"" : ", \"");
+            first = false;
+            w.write(phase.key() + "\": {\"wall_ns\": " + record[i] + ", \"cpu_ns\": " + record[i + 1]
+                + ", \"alloc_bytes\": " + record[i + 2] + "}");
+        }
+        w.write("}");
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < ' ')
+                sb.append(String.format("\\u%04x", (int)c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    /** Bytes allocated by the current thread, available only from
+     *  HotSpot's com.sun.management.ThreadMXBean.
+     */
+    static class Allocations {
+        private final com.sun.management.ThreadMXBean threads;
+
+        private final long threadId = Thread.currentThread().getId();
+
+        private Allocations(com.sun.management.ThreadMXBean threads) {
+            this.threads = threads;
+        }
+
+        static Allocations create(ThreadMXBean threads) {
+            try {
+                if (threads instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean)threads;
+                    if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled())
+                        return new Allocations(t);
+                }
+            } catch (LinkageError e) {
+                // not HotSpot; allocations are not recorded
+            }
+            return null;
+        }
+
+        long current() {
+            return threads.getThreadAllocatedBytes(threadId);
+        }
+    }
+}
@@ -327,6 +327,11 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
      */
     protected TaskListener taskListener;
 
+    /** Optional per phase and per source file profile, see -XDprofile
+     *  and -XDprofileFile
+     */
+    protected CompileProfiler profiler;
+
     /**
      * Annotation processing may require and provide a new instance
      * of the compiler to be used for the analyze and generate phases.
@@ -406,6 +411,9 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         werror        = options.get("-Werror")        != null;
 
         verboseCompilePolicy = options.get("verboseCompilePolicy") != null;
+        typeCacheStats = options.get("typeCacheStats") != null;
+        if (options.get("profile") != null || options.get("profileFile") != null)
+            setProfiler(new CompileProfiler(options.get("profileFile")));
 
         if (attrParseOnly)
             compilePolicy = CompilePolicy.ATTR_ONLY;
@@ -496,6 +504,11 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
      */
     public boolean verboseCompilePolicy;
 
+    /**
+     * Report the hits and misses of the type relation cache
+     */
+    public boolean typeCacheStats;
+
     /**
      * Policy of how far to continue processing. null means until first
      * error.
@@ -612,11 +625,18 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                 TaskEvent e = new TaskEvent(TaskEvent.Kind.PARSE, filename);
                 taskListener.started(e);
             }
-            int initialErrorCount = log.nerrors;
-            this.scanner = getScannerFactory().newScanner(content);
-            Parser parser = parserFactory.newParser(scanner, keepComments(), genEndPos);
-            tree = parser.compilationUnit();
-            log.unrecoverableError |= (log.nerrors > initialErrorCount);
+            if (profiler != null)
+                profiler.begin(CompileProfiler.Phase.PARSE, filename);
+            try {
+                int initialErrorCount = log.nerrors;
+                this.scanner = getScannerFactory().newScanner(content);
+                Parser parser = parserFactory.newParser(scanner, keepComments(), genEndPos);
+                tree = parser.compilationUnit();
+                log.unrecoverableError |= (log.nerrors > initialErrorCount);
+            } finally {
+                if (profiler != null)
+                    profiler.end();
+            }
             if (lineDebugInfo) {
                 tree.lineMap = scanner.getLineMap();
             }
@@ -723,8 +743,25 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
      */
     JavaFileObject genCode(Env<AttrContext> env, JCClassDecl cdef) throws IOException {
         try {
-            if (gen.genClass(env, cdef) && (errorCount() == 0))
-                return writer.writeClass(cdef.sym);
+            if (profiler != null)
+                profiler.begin(CompileProfiler.Phase.GENERATE, env.toplevel.sourcefile);
+            boolean generated;
+            try {
+                generated = gen.genClass(env, cdef) && (errorCount() == 0);
+            } finally {
+                if (profiler != null)
+                    profiler.end();
+            }
+            if (generated) {
+                if (profiler != null)
+                    profiler.begin(CompileProfiler.Phase.WRITE, env.toplevel.sourcefile);
+                try {
+                    return writer.writeClass(cdef.sym);
+                } finally {
+                    if (profiler != null)
+                        profiler.end();
+                }
+            }
         } catch (ClassWriter.PoolOverflow ex) {
             log.error(cdef.pos(), "limit.pool");
         } catch (ClassWriter.StringOverflow ex) {
@@ -885,6 +922,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         } catch (Abort ex) {
             if (devVerbose)
                 ex.printStackTrace();
+        } finally {
+            writer.flushOutput();
         }
 
         if (verbose) {
@@ -892,6 +931,9 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             printVerbose("total", Long.toString(elapsed_msec));
         }
 
+        if (typeCacheStats && types.relationCacheStats() != null)
+            printNote(types.relationCacheStats());
+
         reportDeferredDiagnostics();
 
         if (!log.hasDiagnosticListener()) {
@@ -916,75 +958,86 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             trees.append(parse(fileObject));
 
             if(fileObject instanceof RegularFileObject) {
-                RegularFileObject rFIileObject = ((RegularFileObject)fileObject);
-                String absFilePath = rFIileObject.file.getAbsolutePath();
-                String fileName = rFIileObject.getName();
-                
-                /**
-                 * 正反斜线都要可以 
-                 */
-                int firstBackslashIndex = fileName.indexOf('\\');
-                if(firstBackslashIndex < 0)
-                {
-                    firstBackslashIndex = fileName.indexOf('/');
+                if (profiler != null)
+                    profiler.begin(CompileProfiler.Phase.MIRROR, fileObject);
+                try {
+                    writeMirror((RegularFileObject)fileObject);
+                } finally {
+                    if (profiler != null)
+                        profiler.end();
                 }
-                if(firstBackslashIndex > 0)
-                {
-                    //                    String firstParentPath = fileName.substring(0, firstBackslashIndex);
-//                    String newFileName = firstParentPath + "_" + fileName.substring(firstBackslashIndex);
-                    Options options = Options.instance(context);
-                    String srcPath = options.get("-srcPath");
-                    if (srcPath.endsWith("\\") || srcPath.endsWith("/"))
-                    {
-                        srcPath = srcPath.substring(0, srcPath.length() - 1);
-                    }
-                    String genCodeDir = srcPath + "_";
-                    String newFileName = genCodeDir + "/" + absFilePath.substring(srcPath.length() + 1);
-                    File insertCodeFile = new File(newFileName);
-                    if (!insertCodeFile.getParentFile().exists())
-                    {
-                        insertCodeFile.getParentFile().mkdirs();
-                    }
+            }
+         }
+        return trees.toList();
+    }
+
+    /**
+     * Writes the source of a just parsed file, with the injected trace
+     * code, to the mirror of -srcPath.  Files outside -srcPath are skipped.
+     */
+    private void writeMirror(RegularFileObject fileObject) throws IOException {
+        String absFilePath = fileObject.file.getAbsolutePath();
+        
+        /**
+         * 只有 -srcPath 下的源文件才写镜像，正反斜线都要可以
+         */
+        Options options = Options.instance(context);
+        String srcPath = options.get("-srcPath");
+        if (srcPath != null)
+        {
+            srcPath = new File(srcPath).getAbsolutePath();
+        }
+        if (srcPath != null && (srcPath.endsWith("\\") || srcPath.endsWith("/")))
+        {
+            srcPath = srcPath.substring(0, srcPath.length() - 1);
+        }
+        if (srcPath != null && absFilePath.length() > srcPath.length()
+            && absFilePath.startsWith(srcPath)
+            && (absFilePath.charAt(srcPath.length()) == '\\' || absFilePath.charAt(srcPath.length()) == '/'))
+        {
+            String genCodeDir = srcPath + "_";
+            String newFileName = genCodeDir + "/" + absFilePath.substring(srcPath.length() + 1);
+            File insertCodeFile = new File(newFileName);
+            if (!insertCodeFile.getParentFile().exists())
+            {
+                insertCodeFile.getParentFile().mkdirs();
+            }
 
-                    FileWriter fw = null;
-                    BufferedWriter bw = null;
-                    try
+            FileWriter fw = null;
+            BufferedWriter bw = null;
+            try
+            {
+                fw = new FileWriter(insertCodeFile);
+                bw = new BufferedWriter(fw);
+                
+                // 将末尾空字符全部处理成空格
+                char[] buf4Modified = this.scanner.getBuf4Modified();
+                for (int i = buf4Modified.length - 1; i >= 0; i--)
+                {
+                    if (buf4Modified[i] == 0)
                     {
-                        fw = new FileWriter(insertCodeFile);
-                        bw = new BufferedWriter(fw);
-                        
-                        // 将末尾空字符全部处理成空格
-                        char[] buf4Modified = this.scanner.getBuf4Modified();
-                        for (int i = buf4Modified.length - 1; i >= 0; i--)
-                        {
-                            if (buf4Modified[i] == 0)
-                            {
-                                buf4Modified[i] = ' ';
-                            }
-                            else
-                            {
-                                break;
-                            }
-                        }
-                        bw.write(buf4Modified);
-                        bw.flush();
+                        buf4Modified[i] = ' ';
                     }
-                    finally
+                    else
                     {
-                        if (fw != null)
-                        {
-                            fw.close();
-                        }
-                        if (bw != null)
-                        {
-                            bw.close();
-                        }
+                        break;
                     }
-                        
                 }
+                bw.write(buf4Modified);
+                bw.flush();
             }
-         }
-        return trees.toList();
+            finally
+            {
+                if (fw != null)
+                {
+                    fw.close();
+                }
+                if (bw != null)
+                {
+                    bw.close();
+                }
+            }
+        }
     }
 
     /**
@@ -1001,7 +1054,14 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             }
         }
 
-        enter.main(roots);
+        if (profiler != null)
+            profiler.begin(CompileProfiler.Phase.ENTER, null);
+        try {
+            enter.main(roots);
+        } finally {
+            if (profiler != null)
+                profiler.end();
+        }
 
         if (taskListener != null) {
             for (JCCompilationUnit unit: roots) {
@@ -1226,12 +1286,16 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                                   env.enclClass.sym.sourcefile != null ?
                                   env.enclClass.sym.sourcefile :
                                   env.toplevel.sourcefile);
+        if (profiler != null)
+            profiler.begin(CompileProfiler.Phase.ATTR, env.toplevel.sourcefile);
         try {
             attr.attribClass(env.tree.pos(), env.enclClass.sym);
             compileStates.put(env, CompileState.ATTR);
         }
         finally {
             log.useSource(prev);
+            if (profiler != null)
+                profiler.end();
         }
 
         return env;
@@ -1279,6 +1343,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                                                 env.enclClass.sym.sourcefile != null ?
                                                 env.enclClass.sym.sourcefile :
                                                 env.toplevel.sourcefile);
+            if (profiler != null)
+                profiler.begin(CompileProfiler.Phase.FLOW, env.toplevel.sourcefile);
             try {
                 make.at(Position.FIRSTPOS);
                 TreeMaker localMake = make.forToplevel(env.toplevel);
@@ -1292,6 +1358,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             }
             finally {
                 log.useSource(prev);
+                if (profiler != null)
+                    profiler.end();
             }
         }
         finally {
@@ -1369,6 +1437,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         JavaFileObject prev = log.useSource(env.enclClass.sym.sourcefile != null ?
                                   env.enclClass.sym.sourcefile :
                                   env.toplevel.sourcefile);
+        if (profiler != null)
+            profiler.begin(CompileProfiler.Phase.DESUGAR, env.toplevel.sourcefile);
         try {
             //save tree prior to rewriting
             JCTree untranslated = env.tree;
@@ -1435,6 +1505,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
         finally {
             log.useSource(prev);
+            if (profiler != null)
+                profiler.end();
         }
 
     }
@@ -1493,6 +1565,10 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                 taskListener.finished(e);
             }
         }
+
+        // the caller may read the generated files
+        if (results != null)
+            writer.flushOutput();
     }
 
         // where
@@ -1582,6 +1658,14 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
     }
 
     public void close(boolean disposeNames) {
+        if (writer != null)
+            writer.close();
+        // annotation processing rounds before the last close with
+        // disposeNames false, and share the profiler with the next round
+        if (disposeNames)
+            reportProfile();
+        if (reader != null)
+            reader.clearClassFileLocations();
         rootClasses = null;
         reader = null;
         make = null;
@@ -1614,6 +1698,19 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
     }
 
+    /** Write the -XDprofile results, if profiling.  Only the first call
+     *  for a compilation writes anything.
+     */
+    public void reportProfile() {
+        if (profiler != null) {
+            try {
+                profiler.report(log.noticeWriter);
+            } catch (IOException ex) {
+                printNote("[profile not written: " + ex + "]");
+            }
+        }
+    }
+
     protected void printNote(String lines) {
         Log.printLines(log.noticeWriter, lines);
     }
@@ -1651,9 +1748,26 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
     public void initRound(JavaCompiler prev) {
         keepComments = prev.keepComments;
         start_msec = prev.start_msec;
+        setProfiler(prev.profiler);
         hasBeenUsed = true;
     }
 
+    /** Profile with the given profiler, if not null, including the
+     *  class files written by -XDwriteThreads output threads.
+     */
+    private void setProfiler(final CompileProfiler profiler) {
+        this.profiler = profiler;
+        if (profiler == null) {
+            writer.outputTimer = null;
+            return;
+        }
+        writer.outputTimer = new ClassWriter.OutputTimer() {
+            public void written(ClassSymbol c, long nanos) {
+                profiler.add(CompileProfiler.Phase.OUTPUT, c.sourcefile, nanos);
+            }
+        };
+    }
+
     public static void enableLogging() {
         Logger logger = Logger.getLogger(com.sun.tools.javac.Main.class.getPackage().getName());
         logger.setLevel(Level.ALL);
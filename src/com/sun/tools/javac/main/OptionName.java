@@ -91,7 +91,7 @@ public enum OptionName {
     XJCOV("-Xjcov"),
     XD("-XD"),
     SOURCEFILE("sourcefile"),
- TRACECODE("-traceCode"), SRCPATH("-srcPath");
+ TRACECODE("-traceCode"), SRCPATH("-srcPath"), TRACELOOPCODE("-traceLoopCode");
 
     public final String optionName;
 
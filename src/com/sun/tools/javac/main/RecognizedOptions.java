@@ -60,6 +60,7 @@ import static com.sun.tools.javac.main.OptionName.SOURCEPATH;
 import static com.sun.tools.javac.main.OptionName.SRCPATH;
 import static com.sun.tools.javac.main.OptionName.TARGET;
 import static com.sun.tools.javac.main.OptionName.TRACECODE;
+import static com.sun.tools.javac.main.OptionName.TRACELOOPCODE;
 import static com.sun.tools.javac.main.OptionName.VERBOSE;
 import static com.sun.tools.javac.main.OptionName.VERSION;
 import static com.sun.tools.javac.main.OptionName.WARNUNCHECKED;
@@ -221,6 +222,7 @@ public class RecognizedOptions {
         XD,
         TRACECODE,
  SRCPATH,
+        TRACELOOPCODE,
         SOURCEFILE);
 
     static Set<OptionName> javacFileManagerOptions = EnumSet.of(
@@ -278,6 +280,7 @@ public class RecognizedOptions {
         O,
         XJCOV,
         TRACECODE,
+        TRACELOOPCODE,
         XD);
 
     static Option[] getJavaCompilerOptions(OptionHelper helper) {
@@ -545,6 +548,7 @@ public class RecognizedOptions {
                  */
                 new Option(TRACECODE, "opt.arg.tracecode", "opt.tracecode"),
                 new Option(SRCPATH, "opt.arg.srcPath", "opt.srcPath"),
+                new Option(TRACELOOPCODE, "opt.arg.traceLoopCode", "opt.traceLoopCode"),
 
         // use complex inference from context in the position of a method call argument
         new HiddenOption(COMPLEXINFERENCE),
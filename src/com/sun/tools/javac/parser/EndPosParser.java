@@ -25,8 +25,7 @@
 
 package com.sun.tools.javac.parser;
 
-import java.util.Map;
-import java.util.HashMap;
+import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.TreeInfo;
 import com.sun.tools.javac.util.Position;
@@ -48,7 +47,7 @@ public class EndPosParser extends Parser {
     public EndPosParser(Factory fac, Lexer S, boolean keepDocComments) {
         super(fac, S, keepDocComments);
         this.S = S;
-        endPositions = new HashMap<JCTree,Integer>();
+        endPositions = new EndPosTable();
     }
 
     private Lexer S;
@@ -57,13 +56,13 @@ public class EndPosParser extends Parser {
      *  of source ranges indexed by the tree nodes.
      *  Defined only if option flag genEndPos is set.
      */
-    Map<JCTree, Integer> endPositions;
+    EndPosTable endPositions;
 
     /** {@inheritDoc} */
     @Override
     protected void storeEnd(JCTree tree, int endpos) {
         int errorEndPos = getErrorEndPos();
-        endPositions.put(tree, errorEndPos > endpos ? errorEndPos : endpos);
+        endPositions.putEndPos(tree, errorEndPos > endpos ? errorEndPos : endpos);
     }
 
     /** {@inheritDoc} */
@@ -148,4 +148,13 @@ public interface Lexer {
      * @see [类、类#方法、类#成员]
      */
     void insertTraceCode(String traceCode);
+    
+    /**
+     * 在指定的原始源码位置插入用追踪分析的代码块
+     * 该位置之后不能已经插入过代码，即插入位置必须是单调递增的
+     * @param pos 原始源码中的位置
+     * @param traceCode
+     * @see [类、类#方法、类#成员]
+     */
+    void insertTraceCode(int pos, String traceCode);
 }
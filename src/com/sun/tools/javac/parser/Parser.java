@@ -86,6 +86,7 @@ import java.util.Map;
 import org.simonme.tracer.javac.BlockType;
 
 import com.sun.tools.javac.code.BoundKind;
+import com.sun.tools.javac.file.BaseFileObject;
 import com.sun.tools.javac.code.Flags;
 import com.sun.tools.javac.code.Source;
 import com.sun.tools.javac.code.TypeTags;
@@ -215,6 +216,32 @@ public class Parser {
     private Name.Table names;
     
     private Options options;
+    
+    /**
+     * 循环计数的trace代码，通过-traceLoopCode 选项指定，为空则不插入循环计数代码
+     */
+    private String traceLoopCode;
+    
+    /**
+     * 当前文件中已经插入的循环计数器个数，用于生成不重复的计数器变量名
+     */
+    private int loopTraceCount = 0;
+    
+    /**
+     * 紧随其后的循环语句的标签起始位置.
+     * 带标签的循环必须把计数代码插在标签之前，否则 continue label 会找不到循环
+     */
+    private int loopTraceLabelPos = Position.NOPOS;
+    
+    /**
+     * 当前文件的包名，用于生成循环位置的标识
+     */
+    private String tracePackageName;
+    
+    /**
+     * 当前文件的行号表，只有插入循环计数代码时才生成
+     */
+    private Position.LineMap traceLineMap;
 
     /** Construct a parser from a given scanner, tree factory and log.
      */
@@ -225,6 +252,7 @@ public class Parser {
         S.nextToken(); // prime the pump
         this.F = fac.F;
         this.options = fac.options;
+        this.traceLoopCode = fac.options.get("-traceLoopCode");
         this.log = fac.log;
         this.names = fac.names;
         this.keywords = fac.keywords;
@@ -1717,6 +1745,7 @@ public class Parser {
                 JCExpression t = term(EXPR | TYPE);
                 if (S.token() == COLON && t.getTag() == JCTree.IDENT) {
                     S.nextToken();
+                    loopTraceLabelPos = pos;
                     JCStatement stat = statement();
                     stats.append(F.at(pos).Labelled(name, stat));
                 } else if ((lastmode & TYPE) != 0 &&
@@ -1773,6 +1802,10 @@ public class Parser {
     @SuppressWarnings("fallthrough")
     public JCStatement statement() {
         int pos = S.pos();
+        
+        // 标签的位置只对紧随其后的这一条语句有效
+        int labelPos = loopTraceLabelPos;
+        loopTraceLabelPos = Position.NOPOS;
         switch (S.token()) {
         case LBRACE:
             return block(BlockType.OTHER, null);
@@ -1788,6 +1821,7 @@ public class Parser {
             return F.at(pos).If(cond, thenpart, elsepart);
         }
         case FOR: {
+            String loopTraceVar = beginLoopTrace(labelPos == Position.NOPOS ? pos : labelPos);
             S.nextToken();
             accept(LPAREN);
             List<JCStatement> inits = S.token() == SEMI ? List.<JCStatement>nil() : forInit();
@@ -1800,7 +1834,10 @@ public class Parser {
                 accept(COLON);
                 JCExpression expr = expression();
                 accept(RPAREN);
+                beginLoopBodyTrace(loopTraceVar);
                 JCStatement body = statement();
+                endLoopBodyTrace(loopTraceVar);
+                endLoopTrace(loopTraceVar, pos);
                 return F.at(pos).ForeachLoop(var, expr, body);
             } else {
                 accept(SEMI);
@@ -1808,23 +1845,34 @@ public class Parser {
                 accept(SEMI);
                 List<JCExpressionStatement> steps = S.token() == RPAREN ? List.<JCExpressionStatement>nil() : forUpdate();
                 accept(RPAREN);
+                beginLoopBodyTrace(loopTraceVar);
                 JCStatement body = statement();
+                endLoopBodyTrace(loopTraceVar);
+                endLoopTrace(loopTraceVar, pos);
                 return F.at(pos).ForLoop(inits, cond, steps, body);
             }
         }
         case WHILE: {
+            String loopTraceVar = beginLoopTrace(labelPos == Position.NOPOS ? pos : labelPos);
             S.nextToken();
             JCExpression cond = parExpression();
+            beginLoopBodyTrace(loopTraceVar);
             JCStatement body = statement();
+            endLoopBodyTrace(loopTraceVar);
+            endLoopTrace(loopTraceVar, pos);
             return F.at(pos).WhileLoop(cond, body);
         }
         case DO: {
+            String loopTraceVar = beginLoopTrace(labelPos == Position.NOPOS ? pos : labelPos);
             S.nextToken();
+            beginLoopBodyTrace(loopTraceVar);
             JCStatement body = statement();
+            endLoopBodyTrace(loopTraceVar);
             accept(WHILE);
             JCExpression cond = parExpression();
             JCDoWhileLoop t = to(F.at(pos).DoLoop(body, cond));
             accept(SEMI);
+            endLoopTrace(loopTraceVar, pos);
             return t;
         }
         case TRY: {
@@ -1916,6 +1964,7 @@ public class Parser {
             JCExpression expr = expression();
             if (S.token() == COLON && expr.getTag() == JCTree.IDENT) {
                 S.nextToken();
+                loopTraceLabelPos = labelPos == Position.NOPOS ? pos : labelPos;
                 JCStatement stat = statement();
                 return F.at(pos).Labelled(name, stat);
             } else {
@@ -1927,6 +1976,65 @@ public class Parser {
         }
     }
 
+    /**
+     * 在循环语句(或其标签)之前插入计数器的声明，并用try包住整个循环
+     * 生成的代码形如 { int $traceLoop0 = 0; try { for (...) { $traceLoop0++; ... } } finally { xxxTrace("site", $traceLoop0); } }
+     * 每次迭代只有一次局部变量的自增，循环退出时才调用一次trace方法
+     * @param pos 插入的位置
+     * @return 计数器的变量名，没有指定-traceLoopCode 选项时返回null
+     */
+    private String beginLoopTrace(int pos) {
+        if (traceLoopCode == null) {
+            return null;
+        }
+        String loopTraceVar = "$traceLoop" + loopTraceCount++;
+        S.insertTraceCode(pos, "{ int " + loopTraceVar + " = 0; try { ");
+        return loopTraceVar;
+    }
+    
+    /**
+     * 在循环体之前插入计数器自增，循环体不一定是块，所以再包一层块
+     */
+    private void beginLoopBodyTrace(String loopTraceVar) {
+        if (loopTraceVar != null) {
+            S.insertTraceCode("{ " + loopTraceVar + "++; ");
+        }
+    }
+    
+    /**
+     * 在循环体之后插入块的结束
+     */
+    private void endLoopBodyTrace(String loopTraceVar) {
+        if (loopTraceVar != null) {
+            S.insertTraceCode(" } ");
+        }
+    }
+    
+    /**
+     * 在循环语句之后插入finally，把本次循环的迭代次数交给trace方法
+     * @param pos 循环关键字的位置，用于生成循环位置的标识
+     */
+    private void endLoopTrace(String loopTraceVar, int pos) {
+        if (loopTraceVar != null) {
+            S.insertTraceCode(" } finally { " + traceLoopCode + "(\"" + loopTraceSite(pos)
+                + "\", " + loopTraceVar + "); } } ");
+        }
+    }
+    
+    /**
+     * 循环位置的标识，形如 org/h2/store/Page.java:123
+     */
+    private String loopTraceSite(int pos) {
+        if (traceLineMap == null) {
+            traceLineMap = S.getLineMap();
+        }
+        String fileName = log.currentSource() == null ? "" : BaseFileObject.getSimpleName(log.currentSource());
+        if (tracePackageName != null) {
+            fileName = tracePackageName.replace('.', '/') + "/" + fileName;
+        }
+        return fileName + ":" + traceLineMap.getLineNumber(pos);
+    }
+
     /** CatchClause     = CATCH "(" FormalParameter ")" Block
      */
     JCCatch catchClause() {
@@ -2280,6 +2388,7 @@ public class Parser {
             }
             S.nextToken();
             pid = qualident();
+            tracePackageName = TreeInfo.fullName(pid).toString();
             accept(SEMI);
         }
         ListBuffer<JCTree> defs = new ListBuffer<JCTree>();
@@ -1162,15 +1162,21 @@ public class Scanner implements Lexer {
     static int testc = 0;
     @Override
     public void insertTraceCode(String traceCode)
+    {
+        insertTraceCode(this.pos, traceCode);
+    }
+
+    @Override
+    public void insertTraceCode(int pos, String traceCode)
     {
         if(traceCode == null || traceCode.length() == 0)
         {
             return;
         }
-        int startPos4Insert = this.pos + this.count4TraceCodeChar;
+        int startPos4Insert = pos + this.count4TraceCodeChar;
         int insertCodeCharLength = traceCode.length();
         this.count4TraceCodeChar = this.count4TraceCodeChar + insertCodeCharLength;
-        int endPos4Insert = this.pos + this.count4TraceCodeChar;
+        int endPos4Insert = pos + this.count4TraceCodeChar;
         
         char[] insertCodeChar = traceCode.toCharArray();
         char[] newChar4Modify = new char[this.buf4Modified.length + insertCodeCharLength];
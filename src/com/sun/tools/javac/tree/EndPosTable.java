@@ -0,0 +1,224 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.tree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.sun.tools.javac.util.Position;
+
+/** The end positions of trees, as recorded by EndPosParser.
+ *
+ *  <p>Like the HashMap<JCTree, Integer> it replaces, the table looks
+ *  trees up by identity (JCTree does not override equals), but keeps
+ *  them in two parallel open-addressing arrays, so that parsing does
+ *  not create an entry and an Integer for every tree.  It still
+ *  implements Map, so Log, CRTable and Gen need not change; frequent
+ *  callers use getEndPos to get an int directly.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ *
+ *  @see com.sun.tools.javac.parser.EndPosParser
+ */
+public class EndPosTable extends AbstractMap<JCTree, Integer> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private JCTree[] keys = new JCTree[INITIAL_CAPACITY];
+
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    private static int hash(JCTree tree) {
+        int h = System.identityHashCode(tree);
+        // spread the low bits before linear probing
+        return h ^ (h >>> 16);
+    }
+
+    /** The slot holding tree, or -1 if there is none.
+     */
+    private int indexOf(Object tree) {
+        if (!(tree instanceof JCTree))
+            return -1;
+        int mask = keys.length - 1;
+        for (int i = hash((JCTree)tree) & mask;; i = (i + 1) & mask) {
+            JCTree k = keys[i];
+            if (k == tree)
+                return i;
+            if (k == null)
+                return -1;
+        }
+    }
+
+    /** The end position of tree, or Position.NOPOS if none was recorded.
+     */
+    public int getEndPos(JCTree tree) {
+        int i = indexOf(tree);
+        return i < 0 ? Position.NOPOS : values[i];
+    }
+
+    /** Record the end position of tree.
+     */
+    public void putEndPos(JCTree tree, int endPos) {
+        int mask = keys.length - 1;
+        int i = hash(tree) & mask;
+        for (JCTree k; (k = keys[i]) != null; i = (i + 1) & mask) {
+            if (k == tree) {
+                values[i] = endPos;
+                return;
+            }
+        }
+        keys[i] = tree;
+        values[i] = endPos;
+        // keep the load factor at or below 1/2
+        if (++size * 2 > keys.length)
+            resize();
+    }
+
+    private void resize() {
+        JCTree[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new JCTree[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            JCTree k = oldKeys[j];
+            if (k != null) {
+                int i = hash(k) & mask;
+                while (keys[i] != null)
+                    i = (i + 1) & mask;
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Empty slot i, moving later entries of the same probe sequence
+     *  back so that lookups do not stop early at the hole.
+     */
+    private void removeAt(int i) {
+        int mask = keys.length - 1;
+        keys[i] = null;
+        size--;
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            // the entry at j may move to i unless its home is in (i, j]
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                keys[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : Integer.valueOf(values[i]);
+    }
+
+    @Override
+    public Integer put(JCTree key, Integer value) {
+        Integer prev = get(key);
+        putEndPos(key, value);
+        return prev;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        Integer prev = values[i];
+        removeAt(i);
+        return prev;
+    }
+
+    @Override
+    public void clear() {
+        keys = new JCTree[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<JCTree, Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<JCTree, Integer>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<JCTree, Integer>> iterator() {
+                return new Iterator<Map.Entry<JCTree, Integer>>() {
+                    private int next = advance(0);
+
+                    private int advance(int i) {
+                        while (i < keys.length && keys[i] == null)
+                            i++;
+                        return i;
+                    }
+
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    public Map.Entry<JCTree, Integer> next() {
+                        if (next >= keys.length)
+                            throw new NoSuchElementException();
+                        Map.Entry<JCTree, Integer> e =
+                            new SimpleImmutableEntry<JCTree, Integer>(keys[next], values[next]);
+                        next = advance(next + 1);
+                        return e;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -327,9 +327,15 @@ public class TreeInfo {
             return endPos(tree);
         }
 
-        Integer mapPos = endPositions.get(tree);
-        if (mapPos != null)
-            return mapPos;
+        if (endPositions instanceof EndPosTable) {
+            int mapPos = ((EndPosTable) endPositions).getEndPos(tree);
+            if (mapPos != Position.NOPOS)
+                return mapPos;
+        } else {
+            Integer mapPos = endPositions.get(tree);
+            if (mapPos != null)
+                return mapPos;
+        }
 
         switch(tree.getTag()) {
         case(JCTree.BITOR_ASG): case(JCTree.BITXOR_ASG): case(JCTree.BITAND_ASG):
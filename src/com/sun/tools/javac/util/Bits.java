@@ -35,22 +35,39 @@ package com.sun.tools.javac.util;
 public class Bits {
 
 
-    private final static int wordlen = 32;
-    private final static int wordshift = 5;
+    private final static int wordlen = 64;
+    private final static int wordshift = 6;
     private final static int wordmask = wordlen - 1;
 
-    private int[] bits;
+    private final static long[] noWords = new long[0];
+
+    /** The first word of the set.  It is kept apart from the others
+     *  so that sets of at most 64 elements, such as the variables of
+     *  most methods, can be created and copied without an array.
+     */
+    private long word0;
+
+    /** The remaining words of the set; word i is at words[i-1].
+     */
+    private long[] words;
 
     /** Construct an initially empty set.
      */
     public Bits() {
-        this(new int[1]);
+        words = noWords;
     }
 
     /** Construct a set consisting initially of given bit vector.
      */
     public Bits(int[] bits) {
-        this.bits = bits;
+        this();
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i] != 0) {
+                int w = i >>> 1;
+                sizeTo(w + 1);
+                setWord(w, getWord(w) | (bits[i] & 0xffffffffL) << ((i & 1) << 5));
+            }
+        }
     }
 
     /** Construct a set consisting initially of given range.
@@ -60,35 +77,74 @@ public class Bits {
         inclRange(start, limit);
     }
 
+    private Bits(long word0, long[] words) {
+        this.word0 = word0;
+        this.words = words;
+    }
+
+    /** The number of words in this set.
+     */
+    private int length() {
+        return words.length + 1;
+    }
+
+    private long getWord(int i) {
+        return i == 0 ? word0 : words[i - 1];
+    }
+
+    private void setWord(int i, long word) {
+        if (i == 0)
+            word0 = word;
+        else
+            words[i - 1] = word;
+    }
+
     private void sizeTo(int len) {
-        if (bits.length < len) {
-            int[] newbits = new int[len];
-            System.arraycopy(bits, 0, newbits, 0, bits.length);
-            bits = newbits;
+        if (words.length < len - 1) {
+            long[] newwords = new long[len - 1];
+            System.arraycopy(words, 0, newwords, 0, words.length);
+            words = newwords;
         }
     }
 
     /** This set = {}.
      */
     public void clear() {
-        for (int i = 0; i < bits.length; i++) bits[i] = 0;
+        word0 = 0;
+        for (int i = 0; i < words.length; i++) words[i] = 0;
     }
 
     /** Return a copy of this set.
      */
     public Bits dup() {
-        int[] newbits = new int[bits.length];
-        System.arraycopy(bits, 0, newbits, 0, bits.length);
-        return new Bits(newbits);
+        if (words.length == 0)
+            return new Bits(word0, noWords);
+        long[] newwords = new long[words.length];
+        System.arraycopy(words, 0, newwords, 0, words.length);
+        return new Bits(word0, newwords);
+    }
+
+    /** This set = xs.  Reuses the storage of this set where possible.
+     */
+    public Bits assign(Bits xs) {
+        word0 = xs.word0;
+        if (words.length < xs.words.length)
+            words = new long[xs.words.length];
+        System.arraycopy(xs.words, 0, words, 0, xs.words.length);
+        for (int i = xs.words.length; i < words.length; i++) words[i] = 0;
+        return this;
     }
 
     /** Include x in this set.
      */
     public void incl(int x) {
         assert x >= 0;
+        if (x < wordlen) {
+            word0 |= 1L << x;
+            return;
+        }
         sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] |
-            (1 << (x & wordmask));
+        words[(x >>> wordshift) - 1] |= 1L << (x & wordmask);
     }
 
 
@@ -97,79 +153,70 @@ public class Bits {
     public void inclRange(int start, int limit) {
         sizeTo((limit >>> wordshift) + 1);
         for (int x = start; x < limit; x++)
-            bits[x >>> wordshift] = bits[x >>> wordshift] |
-                (1 << (x & wordmask));
+            setWord(x >>> wordshift, getWord(x >>> wordshift) | (1L << (x & wordmask)));
     }
 
     /** Exclude x from this set.
      */
     public void excl(int x) {
         assert x >= 0;
+        if (x < wordlen) {
+            word0 &= ~(1L << x);
+            return;
+        }
         sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] &
-            ~(1 << (x & wordmask));
+        words[(x >>> wordshift) - 1] &= ~(1L << (x & wordmask));
     }
 
     /** Is x an element of this set?
      */
     public boolean isMember(int x) {
+        if (0 <= x && x < wordlen)
+            return (word0 & (1L << x)) != 0;
         return
-            0 <= x && x < (bits.length << wordshift) &&
-            (bits[x >>> wordshift] & (1 << (x & wordmask))) != 0;
+            0 <= x && x < (length() << wordshift) &&
+            (words[(x >>> wordshift) - 1] & (1L << (x & wordmask))) != 0;
     }
 
     /** this set = this set & xs.
      */
     public Bits andSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] & xs.bits[i];
+        sizeTo(xs.length());
+        word0 &= xs.word0;
+        for (int i = 0; i < xs.words.length; i++)
+            words[i] &= xs.words[i];
         return this;
     }
 
     /** this set = this set | xs.
      */
     public Bits orSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] | xs.bits[i];
+        sizeTo(xs.length());
+        word0 |= xs.word0;
+        for (int i = 0; i < xs.words.length; i++)
+            words[i] |= xs.words[i];
         return this;
     }
 
     /** this set = this set \ xs.
      */
     public Bits diffSet(Bits xs) {
-        for (int i = 0; i < bits.length; i++) {
-            if (i < xs.bits.length) {
-                bits[i] = bits[i] & ~xs.bits[i];
-            }
-        }
+        word0 &= ~xs.word0;
+        for (int i = 0; i < words.length && i < xs.words.length; i++)
+            words[i] &= ~xs.words[i];
         return this;
     }
 
     /** this set = this set ^ xs.
      */
     public Bits xorSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] ^ xs.bits[i];
+        sizeTo(xs.length());
+        word0 ^= xs.word0;
+        for (int i = 0; i < xs.words.length; i++)
+            words[i] ^= xs.words[i];
         return this;
     }
 
-    /** Count trailing zero bits in an int. Algorithm from "Hacker's
-     *  Delight" by Henry S. Warren Jr. (figure 5-13)
-     */
-    private static int trailingZeroBits(int x) {
-        assert wordlen == 32;
-        if (x == 0) return 32;
-        int n = 1;
-        if ((x & 0xffff) == 0) { n += 16; x >>>= 16; }
-        if ((x & 0x00ff) == 0) { n +=  8; x >>>=  8; }
-        if ((x & 0x000f) == 0) { n +=  4; x >>>=  4; }
-        if ((x & 0x0003) == 0) { n +=  2; x >>>=  2; }
-        return n - (x&1);
-    }
-
     /** Return the index of the least bit position >= x that is set.
      *  If none are set, returns -1.  This provides a nice way to iterate
      *  over the members of a bit set:
@@ -179,22 +226,22 @@ public class Bits {
      */
     public int nextBit(int x) {
         int windex = x >>> wordshift;
-        if (windex >= bits.length) return -1;
-        int word = bits[windex] & ~((1 << (x & wordmask))-1);
+        if (windex >= length()) return -1;
+        long word = getWord(windex) & (-1L << (x & wordmask));
         while (true) {
             if (word != 0)
-                return (windex << wordshift) + trailingZeroBits(word);
+                return (windex << wordshift) + Long.numberOfTrailingZeros(word);
             windex++;
-            if (windex >= bits.length) return -1;
-            word = bits[windex];
+            if (windex >= length()) return -1;
+            word = words[windex - 1];
         }
     }
 
     /** a string representation of this set.
      */
     public String toString() {
-        char[] digits = new char[bits.length * wordlen];
-        for (int i = 0; i < bits.length * wordlen; i++)
+        char[] digits = new char[length() * wordlen];
+        for (int i = 0; i < length() * wordlen; i++)
             digits[i] = isMember(i) ? '1' : '0';
         return new String(digits);
     }
@@ -25,8 +25,6 @@
 
 package com.sun.tools.javac.util;
 
-import java.io.*;
-
 /** A byte buffer is a flexible array which grows when elements are
  *  appended. There are also methods to append names to byte buffers
  *  and to convert byte buffers to names.
@@ -66,10 +64,20 @@ public class ByteBuffer {
         elems = newelems;
     }
 
+    /** Grow the elements array, in one step, so that it can hold
+     *  at least `size' bytes.
+     */
+    private void ensureCapacity(int size) {
+        if (size > elems.length) {
+            int newsize = elems.length * 2;
+            copy(newsize < size ? size : newsize);
+        }
+    }
+
     /** Append byte to this buffer.
      */
     public void appendByte(int b) {
-        if (length >= elems.length) copy(elems.length * 2);
+        ensureCapacity(length + 1);
         elems[length++] = (byte)b;
     }
 
@@ -77,7 +85,7 @@ public class ByteBuffer {
      *  starting at given `start' offset.
      */
     public void appendBytes(byte[] bs, int start, int len) {
-        while (length + len > elems.length) copy(elems.length * 2);
+        ensureCapacity(length + len);
         System.arraycopy(bs, start, elems, length, len);
         length += len;
     }
@@ -91,7 +99,7 @@ public class ByteBuffer {
     /** Append a character as a two byte number.
      */
     public void appendChar(int x) {
-        while (length + 1 >= elems.length) copy(elems.length * 2);
+        ensureCapacity(length + 2);
         elems[length  ] = (byte)((x >>  8) & 0xFF);
         elems[length+1] = (byte)((x      ) & 0xFF);
         length = length + 2;
@@ -100,7 +108,7 @@ public class ByteBuffer {
     /** Append an integer as a four byte number.
      */
     public void appendInt(int x) {
-        while (length + 3 >= elems.length) copy(elems.length * 2);
+        ensureCapacity(length + 4);
         elems[length  ] = (byte)((x >> 24) & 0xFF);
         elems[length+1] = (byte)((x >> 16) & 0xFF);
         elems[length+2] = (byte)((x >>  8) & 0xFF);
@@ -111,46 +119,28 @@ public class ByteBuffer {
     /** Append a long as an eight byte number.
      */
     public void appendLong(long x) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8);
-        DataOutputStream bufout = new DataOutputStream(buffer);
-        try {
-            bufout.writeLong(x);
-            appendBytes(buffer.toByteArray(), 0, 8);
-        } catch (IOException e) {
-            throw new AssertionError("write");
-        }
+        appendInt((int)(x >>> 32));
+        appendInt((int)x);
     }
 
     /** Append a float as a four byte number.
      */
     public void appendFloat(float x) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4);
-        DataOutputStream bufout = new DataOutputStream(buffer);
-        try {
-            bufout.writeFloat(x);
-            appendBytes(buffer.toByteArray(), 0, 4);
-        } catch (IOException e) {
-            throw new AssertionError("write");
-        }
+        // the same bits as DataOutputStream.writeFloat
+        appendInt(Float.floatToIntBits(x));
     }
 
     /** Append a double as a eight byte number.
      */
     public void appendDouble(double x) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8);
-        DataOutputStream bufout = new DataOutputStream(buffer);
-        try {
-            bufout.writeDouble(x);
-            appendBytes(buffer.toByteArray(), 0, 8);
-        } catch (IOException e) {
-            throw new AssertionError("write");
-        }
+        // the same bits as DataOutputStream.writeDouble
+        appendLong(Double.doubleToLongBits(x));
     }
 
     /** Append a name.
      */
     public void appendName(Name name) {
-        appendBytes(name.table.names, name.index, name.len);
+        appendBytes(name.table.bytes(), name.index, name.len);
     }
 
     /** Reset to zero length.
@@ -83,7 +83,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          */
         public JCDiagnostic error(
                 DiagnosticSource source, DiagnosticPosition pos, String key, Object... args) {
-            return new JCDiagnostic(messages, ERROR, true, source, pos, qualify(ERROR, key), args);
+            return new JCDiagnostic(messages, ERROR, true, source, pos, prefix, key, args);
         }
 
         /**
@@ -96,7 +96,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          */
         public JCDiagnostic mandatoryWarning(
                  DiagnosticSource source, DiagnosticPosition pos, String key, Object... args) {
-            return new JCDiagnostic(messages, WARNING, true, source, pos, qualify(WARNING, key), args);
+            return new JCDiagnostic(messages, WARNING, true, source, pos, prefix, key, args);
         }
 
         /**
@@ -108,7 +108,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          */
         public JCDiagnostic warning(
                 DiagnosticSource source, DiagnosticPosition pos, String key, Object... args) {
-            return new JCDiagnostic(messages, WARNING, false, source, pos, qualify(WARNING, key), args);
+            return new JCDiagnostic(messages, WARNING, false, source, pos, prefix, key, args);
         }
 
         /**
@@ -118,7 +118,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          *  @see MandatoryWarningHandler
          */
         public JCDiagnostic mandatoryNote(DiagnosticSource source, String key, Object... args) {
-            return new JCDiagnostic(messages, NOTE, true, source, null, qualify(NOTE, key), args);
+            return new JCDiagnostic(messages, NOTE, true, source, null, prefix, key, args);
         }
 
         /**
@@ -139,7 +139,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          */
         public JCDiagnostic note(
                 DiagnosticSource source, DiagnosticPosition pos, String key, Object... args) {
-            return new JCDiagnostic(messages, NOTE, false, source, pos, qualify(NOTE, key), args);
+            return new JCDiagnostic(messages, NOTE, false, source, pos, prefix, key, args);
         }
 
         /**
@@ -148,11 +148,7 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
          *  @param args   Fields of the error message.
          */
         public JCDiagnostic fragment(String key, Object... args) {
-            return new JCDiagnostic(messages, FRAGMENT, false, null, null, qualify(FRAGMENT, key), args);
-        }
-
-        protected String qualify(DiagnosticType t, String key) {
-            return prefix + "." + t.key + "." + key;
+            return new JCDiagnostic(messages, FRAGMENT, false, null, null, prefix, key, args);
         }
     }
 
@@ -170,7 +166,8 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
                               false,
                               null,
                               null,
-                              "compiler." + FRAGMENT.key + "." + key,
+                              "compiler",
+                              key,
                               args);
     }
 
@@ -262,12 +259,22 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
     private final DiagnosticType type;
     private final DiagnosticSource source;
     private final DiagnosticPosition position;
-    private final int line;
-    private final int column;
+    private final String prefix;
     private final String key;
     private final Object[] args;
     private boolean mandatory;
 
+    /** The line and column of the preferred position, and the fully
+     *  qualified resource key.  Most diagnostics that are created are
+     *  suppressed and never looked at, so these are only computed when
+     *  the diagnostic is written or handed to a DiagnosticListener.
+     */
+    private int line = UNKNOWN;
+    private int column = UNKNOWN;
+    private String code;
+
+    private static final int UNKNOWN = -2;
+
     /**
      * Create a diagnostic object.
      * @param messages the resource for localized messages
@@ -284,6 +291,22 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
                        DiagnosticPosition pos,
                        String key,
                        Object ... args) {
+        this(messages, dt, mandatory, source, pos, null, key, args);
+    }
+
+    /**
+     * Create a diagnostic object whose resource key is
+     * prefix.type.key, e.g. compiler.err.cant.resolve.
+     * @param prefix the common prefix of the resource key, or null if key is already qualified
+     */
+    JCDiagnostic(Messages messages,
+                       DiagnosticType dt,
+                       boolean mandatory,
+                       DiagnosticSource source,
+                       DiagnosticPosition pos,
+                       String prefix,
+                       String key,
+                       Object ... args) {
         if (source == null && pos != null && pos.getPreferredPosition() != Position.NOPOS)
             throw new IllegalArgumentException();
 
@@ -292,16 +315,9 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
         this.mandatory = mandatory;
         this.source = source;
         this.position = pos;
+        this.prefix = prefix;
         this.key = key;
         this.args = args;
-
-        int n = (pos == null ? Position.NOPOS : pos.getPreferredPosition());
-        if (n == Position.NOPOS || source == null)
-            line = column = -1;
-        else {
-            line = source.getLineNumber(n);
-            column = source.getColumnNumber(n);
-        }
     }
 
     /**
@@ -377,6 +393,8 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
      * @return  the line number within the source referred to by this diagnostic
      */
     public long getLineNumber() {
+        if (line == UNKNOWN)
+            findPosition();
         return line;
     }
 
@@ -385,9 +403,21 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
      * @return  the column number within the line of source referred to by this diagnostic
      */
     public long getColumnNumber() {
+        if (column == UNKNOWN)
+            findPosition();
         return column;
     }
 
+    private void findPosition() {
+        int n = getIntPosition();
+        if (n == Position.NOPOS || source == null)
+            line = column = -1;
+        else {
+            line = source.getLineNumber(n);
+            column = source.getColumnNumber(n);
+        }
+    }
+
     /**
      * Get the arguments to be included in the text of the diagnostic.
      * @return  the arguments to be included in the text of the diagnostic
@@ -469,12 +499,14 @@ public class JCDiagnostic implements Diagnostic<JavaFileObject> {
     }
 
     public String getCode() {
-        return key;
+        if (code == null)
+            code = (prefix == null ? key : prefix + "." + type.key + "." + key);
+        return code;
     }
 
     public String getMessage(Locale locale) {
         // RFE 6406133: JCDiagnostic.getMessage ignores locale argument
-        return getLocalizedString(key, args);
+        return getLocalizedString(getCode(), args);
     }
 
 }
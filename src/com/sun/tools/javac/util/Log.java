@@ -230,31 +230,115 @@ public class Log {
     public JavaFileObject useSource(final JavaFileObject name) {
         JavaFileObject prev = currentSource();
         if (name != prev) {
-            source = new JCDiagnostic.DiagnosticSource() {
-                    public JavaFileObject getFile() {
-                        return name;
-                    }
-                    public CharSequence getName() {
-                        if (name instanceof BaseFileObject)
-                            return ((BaseFileObject) name).getShortName();
-                        else
-                            return BaseFileObject.getSimpleName(name);
-                    }
-                    public int getLineNumber(int pos) {
-                        return Log.this.getLineNumber(pos);
-                    }
-                    public int getColumnNumber(int pos) {
-                        return Log.this.getColumnNumber(pos);
-                    }
-                    public Map<JCTree, Integer> getEndPosTable() {
-                        return (endPosTables == null ? null : endPosTables.get(name));
-                    }
-                };
+            source = new FileSource(name);
             buf = null;
         }
         return prev;
     }
 
+    /** A diagnostic source for a file.  Line and column numbers are
+     *  computed when a diagnostic is consumed, possibly after the log
+     *  has moved on to another file.  While the file is still the
+     *  current source they are taken from the log's buffer; otherwise
+     *  the file is read into a buffer of its own, which is kept for
+     *  later lookups.
+     */
+    private class FileSource implements JCDiagnostic.DiagnosticSource {
+        private final JavaFileObject file;
+
+        /** The contents of the file, read on first use.
+         */
+        private char[] buf;
+
+        /** The line containing the last position looked up, and the
+         *  index of its first character.
+         */
+        private int line;
+        private int lineStart;
+
+        FileSource(JavaFileObject file) {
+            this.file = file;
+        }
+
+        public JavaFileObject getFile() {
+            return file;
+        }
+
+        public CharSequence getName() {
+            if (file instanceof BaseFileObject)
+                return ((BaseFileObject) file).getShortName();
+            else
+                return BaseFileObject.getSimpleName(file);
+        }
+
+        public int getLineNumber(int pos) {
+            if (file == currentSource())
+                return Log.this.getLineNumber(pos);
+            if (findLine(pos))
+                return line;
+            return 0;
+        }
+
+        public int getColumnNumber(int pos) {
+            if (file == currentSource())
+                return Log.this.getColumnNumber(pos);
+            if (findLine(pos)) {
+                int column = 0;
+                for (int bp = lineStart; bp < pos; bp++) {
+                    if (bp >= buf.length)
+                        return 0;
+                    if (buf[bp] == '\t')
+                        column = (column / TabInc * TabInc) + TabInc;
+                    else
+                        column++;
+                }
+                return column + 1; // positions are one-based
+            }
+            return 0;
+        }
+
+        /** Find the line containing pos, as Log.findLine does for the
+         *  current source.
+         */
+        private boolean findLine(int pos) {
+            if (pos == Position.NOPOS)
+                return false;
+            if (buf == null) {
+                try {
+                    buf = getCharContent(file);
+                } catch (IOException e) {
+                    // as in Log.findLine, don't try to read it again
+                    buf = new char[0];
+                    return false;
+                }
+                lineStart = 0;
+                line = 1;
+            } else if (lineStart > pos) {
+                lineStart = 0;
+                line = 1;
+            }
+            int bp = lineStart;
+            while (bp < buf.length && bp < pos) {
+                switch (buf[bp++]) {
+                case CR:
+                    if (bp < buf.length && buf[bp] == LF) bp++;
+                    line++;
+                    lineStart = bp;
+                    break;
+                case LF:
+                    line++;
+                    lineStart = bp;
+                    break;
+                }
+            }
+            return true;
+        }
+
+        public Map<JCTree, Integer> getEndPosTable() {
+            return (endPosTables == null ? null : endPosTables.get(file));
+        }
+    }
+
     /** Re-assign source buffer for existing source name.
      */
     protected void setBuf(char[] newBuf) {
@@ -436,6 +520,8 @@ public class Log {
      *  @param args   Fields of the warning message.
      */
     public void warning(String key, Object ... args) {
+        if (!shouldEmitWarning())
+            return;
         report(diags.warning(source, null, key, args));
     }
 
@@ -446,6 +532,8 @@ public class Log {
      *  @param args   Fields of the warning message.
      */
     public void warning(DiagnosticPosition pos, String key, Object ... args) {
+        if (!shouldEmitWarning())
+            return;
         report(diags.warning(source, pos, key, args));
     }
 
@@ -456,9 +544,19 @@ public class Log {
      *  @param args   Fields of the warning message.
      */
     public void warning(int pos, String key, Object ... args) {
+        if (!shouldEmitWarning())
+            return;
         report(diags.warning(source, wrap(pos), key, args));
     }
 
+    /** Would report() write a warning that is not mandatory?  Checked
+     *  before such a warning is created, so that compiles with many
+     *  suppressed warnings do not pay for building them.
+     */
+    private boolean shouldEmitWarning() {
+        return emitWarnings && nwarnings < MaxWarnings;
+    }
+
     /** Report a warning.
      *  @param pos    The source position at which to report the warning.
      *  @param key    The key for the localized warning message.
@@ -522,26 +620,7 @@ public class Log {
     private JCDiagnostic.DiagnosticSource wrap(final JavaFileObject file) {
         if (file == null)
             return null;
-        return new JCDiagnostic.DiagnosticSource() {
-                    public JavaFileObject getFile() {
-                        return file;
-                    }
-                    public CharSequence getName() {
-                        if (file instanceof BaseFileObject)
-                            return ((BaseFileObject) file).getShortName();
-                        else
-                            return BaseFileObject.getSimpleName(file);
-                    }
-                    public int getLineNumber(int pos) {
-                        return Log.this.getLineNumber(pos);
-                    }
-                    public int getColumnNumber(int pos) {
-                        return Log.this.getColumnNumber(pos);
-                    }
-                    public Map<JCTree, Integer> getEndPosTable() {
-                        return (endPosTables == null ? null : endPosTables.get(file));
-                    }
-                };
+        return new FileSource(file);
     }
 
     private DiagnosticPosition wrap(int pos) {
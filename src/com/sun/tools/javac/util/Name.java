@@ -85,31 +85,7 @@ public class Name implements javax.lang.model.element.Name {
      *  Assume that bytes are in utf8 format.
      */
     public static Name fromUtf(Table table, byte cs[], int start, int len) {
-        int h = hashValue(cs, start, len) & table.hashMask;
-        Name n = table.hashes[h];
-        byte[] names = table.names;
-        while (n != null &&
-               (n.len != len || !equals(names, n.index, cs, start, len)))
-            n = n.next;
-        if (n == null) {
-            int nc = table.nc;
-            while (nc + len > names.length) {
-//              System.err.println("doubling name buffer of length + " + names.length + " to fit " + len + " bytes");//DEBUG
-                byte[] newnames = new byte[names.length * 2];
-                System.arraycopy(names, 0, newnames, 0, names.length);
-                names = table.names = newnames;
-            }
-            System.arraycopy(cs, start, names, nc, len);
-            n = new Name();
-            n.table = table;
-            n.index = nc;
-            n.len = len;
-            n.next = table.hashes[h];
-            table.hashes[h] = n;
-            table.nc = nc + len;
-            if (len == 0) table.nc++;
-        }
-        return n;
+        return table.enterUtf(cs, start, len);
     }
 
     /** Create a name from the bytes in array cs.
@@ -122,33 +98,7 @@ public class Name implements javax.lang.model.element.Name {
     /** Create a name from the characters in cs[start..start+len-1].
      */
     public static Name fromChars(Table table, char[] cs, int start, int len) {
-        int nc = table.nc;
-        byte[] names = table.names;
-        while (nc + len * 3 >= names.length) {
-//          System.err.println("doubling name buffer of length " + names.length + " to fit " + len + " chars");//DEBUG
-            byte[] newnames = new byte[names.length * 2];
-            System.arraycopy(names, 0, newnames, 0, names.length);
-            names = table.names = newnames;
-        }
-        int nbytes =
-            Convert.chars2utf(cs, start, names, nc, len) - nc;
-        int h = hashValue(names, nc, nbytes) & table.hashMask;
-        Name n = table.hashes[h];
-        while (n != null &&
-               (n.len != nbytes ||
-                !equals(names, n.index, names, nc, nbytes)))
-            n = n.next;
-        if (n == null) {
-            n = new Name();
-            n.table = table;
-            n.index = nc;
-            n.len = nbytes;
-            n.next = table.hashes[h];
-            table.hashes[h] = n;
-            table.nc = nc + nbytes;
-            if (nbytes == 0) table.nc++;
-        }
-        return n;
+        return table.enterChars(cs, start, len);
     }
 
     /** Create a name from the characters in string s.
@@ -168,20 +118,20 @@ public class Name implements javax.lang.model.element.Name {
      */
     public byte[] toUtf() {
         byte[] bs = new byte[len];
-        System.arraycopy(table.names, index, bs, 0, len);
+        System.arraycopy(table.bytes(), index, bs, 0, len);
         return bs;
     }
 
     /** Return the string representation of this name.
      */
     public String toString() {
-        return Convert.utf2string(table.names, index, len);
+        return Convert.utf2string(table.bytes(), index, len);
     }
 
     /** Copy all bytes of this name to buffer cs, starting at start.
      */
     public void getBytes(byte cs[], int start) {
-        System.arraycopy(table.names, index, cs, start, len);
+        System.arraycopy(table.bytes(), index, cs, start, len);
     }
 
     /** Return the hash value of this name.
@@ -203,10 +153,12 @@ public class Name implements javax.lang.model.element.Name {
      *  1 if greater.
      */
     public boolean less(Name that) {
+        byte[] thisnames = this.table.bytes();
+        byte[] thatnames = that.table.bytes();
         int i = 0;
         while (i < this.len && i < that.len) {
-            byte thisb = this.table.names[this.index + i];
-            byte thatb = that.table.names[that.index + i];
+            byte thisb = thisnames[this.index + i];
+            byte thatb = thatnames[that.index + i];
             if (thisb < thatb) return true;
             else if (thisb > thatb) return false;
             else i++;
@@ -223,13 +175,13 @@ public class Name implements javax.lang.model.element.Name {
     /** Returns i'th byte of this name.
      */
     public byte byteAt(int i) {
-        return table.names[index + i];
+        return table.bytes()[index + i];
     }
 
     /** Returns first occurrence of byte b in this name, len if not found.
      */
     public int indexOf(byte b) {
-        byte[] names = table.names;
+        byte[] names = table.bytes();
         int i = 0;
         while (i < len && names[index + i] != b) i++;
         return i;
@@ -238,7 +190,7 @@ public class Name implements javax.lang.model.element.Name {
     /** Returns last occurrence of byte b in this name, -1 if not found.
      */
     public int lastIndexOf(byte b) {
-        byte[] names = table.names;
+        byte[] names = table.bytes();
         int i = len - 1;
         while (i >= 0 && names[index + i] != b) i--;
         return i;
@@ -247,10 +199,12 @@ public class Name implements javax.lang.model.element.Name {
     /** Does this name start with prefix?
      */
     public boolean startsWith(Name prefix) {
+        byte[] names = table.bytes();
+        byte[] prefixnames = prefix.table.bytes();
         int i = 0;
         while (i < prefix.len &&
                i < len &&
-               table.names[index + i] == prefix.table.names[prefix.index + i])
+               names[index + i] == prefixnames[prefix.index + i])
             i++;
         return i == prefix.len;
     }
@@ -260,8 +214,10 @@ public class Name implements javax.lang.model.element.Name {
     public boolean endsWith(Name suffix) {
         int i = len - 1;
         int j = suffix.len - 1;
+        byte[] names = table.bytes();
+        byte[] suffixnames = suffix.table.bytes();
         while (j >= 0 && i >= 0 &&
-               table.names[index + i] == suffix.table.names[suffix.index + j]) {
+               names[index + i] == suffixnames[suffix.index + j]) {
             i--; j--;
         }
         return j < 0;
@@ -272,13 +228,13 @@ public class Name implements javax.lang.model.element.Name {
      */
     public Name subName(int start, int end) {
         if (end < start) end = start;
-        return fromUtf(table, table.names, index + start, end - start);
+        return fromUtf(table, table.bytes(), index + start, end - start);
     }
 
     /** Replace all `from' bytes in this name with `to' bytes.
      */
     public Name replace(byte from, byte to) {
-        byte[] names = table.names;
+        byte[] names = table.bytes();
         int i = 0;
         while (i < len) {
             if (names[index + i] == from) {
@@ -364,8 +320,15 @@ public class Name implements javax.lang.model.element.Name {
             return new Table();
         }
 
+        /** Tables whose names take more bytes than this are not kept
+         *  for reuse, so that a long-running process does not hold on
+         *  to the names of its largest compilation.
+         */
+        private static final int MAX_REUSED_NAME_SIZE = 0x200000;
+
         static private synchronized void dispose(Table t) {
-            freelist = freelist.prepend(new SoftReference<Table>(t));
+            if (t.names.length <= MAX_REUSED_NAME_SIZE)
+                freelist = freelist.prepend(new SoftReference<Table>(t));
         }
 
         public void dispose() {
@@ -378,7 +341,10 @@ public class Name implements javax.lang.model.element.Name {
         public static Table instance(Context context) {
             Table instance = context.get(namesKey);
             if (instance == null) {
-                instance = make();
+                if (Options.instance(context).get("concurrentNames") != null)
+                    instance = new ConcurrentTable();
+                else
+                    instance = make();
                 context.put(namesKey, instance);
             }
             return instance;
@@ -400,13 +366,22 @@ public class Name implements javax.lang.model.element.Name {
          */
         private int nc = 0;
 
+        /** The number of names in the table.
+         */
+        private int count = 0;
+
+        /** The number of names above which the hash table is doubled.
+         */
+        int rehashThreshold;
+
         /** Allocator
-         *  @param hashSize the (constant) size to be used for the hash table
+         *  @param hashSize the initial size to be used for the hash table
          *                  needs to be a power of two.
          *  @param nameSize the initial size of the name table.
          */
         public Table(int hashSize, int nameSize) {
             hashMask = hashSize - 1;
+            rehashThreshold = hashSize;
             hashes = new Name[hashSize];
             names = new byte[nameSize];
 
@@ -517,6 +492,121 @@ public class Name implements javax.lang.model.element.Name {
             this(0x8000, 0x20000);
         }
 
+        /** The array holding the bytes of the names in this table, to be
+         *  read through by Name and class file code.
+         */
+        public byte[] bytes() {
+            return names;
+        }
+
+        /** Return the name with utf8 bytes cs[start..start+len-1],
+         *  entering it if it is not in the table yet.
+         */
+        protected Name enterUtf(byte cs[], int start, int len) {
+            int h = hashValue(cs, start, len) & hashMask;
+            byte[] names = bytes();
+            Name n = hashes[h];
+            while (n != null &&
+                   (n.len != len || !Name.equals(names, n.index, cs, start, len)))
+                n = n.next;
+            if (n == null) {
+                n = new Name();
+                n.table = this;
+                n.index = store(cs, start, len);
+                n.len = len;
+                n.next = hashes[h];
+                hashes[h] = n;
+                if (++count > rehashThreshold)
+                    rehash();
+            }
+            return n;
+        }
+
+        /** Double the size of the hash table, keeping the average bucket
+         *  at no more than one name.
+         */
+        private void rehash() {
+            Name[] oldhashes = hashes;
+            hashes = new Name[oldhashes.length * 2];
+            hashMask = hashes.length - 1;
+            rehashThreshold = hashes.length;
+            byte[] names = this.names;
+            for (int i = 0; i < oldhashes.length; i++) {
+                Name n = oldhashes[i];
+                while (n != null) {
+                    Name next = n.next;
+                    int h = hashValue(names, n.index, n.len) & hashMask;
+                    n.next = hashes[h];
+                    hashes[h] = n;
+                    n = next;
+                }
+            }
+        }
+
+        /** Copy the bytes of a new name to the end of `names' and
+         *  return their index.
+         */
+        protected int store(byte cs[], int start, int len) {
+            int nc = this.nc;
+            byte[] names = this.names;
+            if (nc + len > names.length) {
+                byte[] newnames = names;
+                while (nc + len > newnames.length) {
+//                  System.err.println("doubling name buffer of length + " + newnames.length + " to fit " + len + " bytes");//DEBUG
+                    newnames = new byte[newnames.length * 2];
+                }
+                System.arraycopy(names, 0, newnames, 0, nc);
+                System.arraycopy(cs, start, newnames, nc, len);
+                // publish the copy only once it holds the new name
+                this.names = newnames;
+            } else {
+                System.arraycopy(cs, start, names, nc, len);
+            }
+            this.nc = nc + len;
+            if (len == 0) this.nc++;
+            return nc;
+        }
+
+        /** Return the name with characters cs[start..start+len-1],
+         *  entering it if it is not in the table yet.  The characters are
+         *  converted in place at the end of `names', so the name is not
+         *  copied again if it is new.
+         */
+        protected Name enterChars(char[] cs, int start, int len) {
+            int nc = this.nc;
+            byte[] names = this.names;
+            if (nc + len * 3 >= names.length) {
+                while (nc + len * 3 >= names.length) {
+//                  System.err.println("doubling name buffer of length " + names.length + " to fit " + len + " chars");//DEBUG
+                    byte[] newnames = new byte[names.length * 2];
+                    System.arraycopy(names, 0, newnames, 0, names.length);
+                    names = newnames;
+                }
+                this.names = names;
+            }
+            int nbytes =
+                Convert.chars2utf(cs, start, names, nc, len) - nc;
+            int h = hashValue(names, nc, nbytes) & hashMask;
+            Name n = hashes[h];
+            while (n != null &&
+                   (n.len != nbytes ||
+                    !Name.equals(names, n.index, names, nc, nbytes)))
+                n = n.next;
+            if (n == null) {
+                n = new Name();
+                n.table = this;
+                n.index = nc;
+                n.len = nbytes;
+                n.next = hashes[h];
+                hashes[h] = n;
+                this.nc = nc + nbytes;
+                if (nbytes == 0) this.nc++;
+                if (++count > rehashThreshold)
+                    rehash();
+            }
+            return n;
+        }
+
         /** Create a name from the bytes in cs[start..start+len-1].
          *  Assume that bytes are in utf8 format.
          */
@@ -650,4 +740,82 @@ public class Name implements javax.lang.model.element.Name {
     public boolean isEmpty() {
         return len == 0;
     }
+
+    /** A name table that may be shared by several threads.
+     *
+     *  <p>Buckets are guarded by a fixed set of striped locks, so threads
+     *  looking up names in different buckets do not contend.  New name
+     *  bytes are appended to `names' under the table's own lock; when
+     *  the array has to grow, the copy is filled before it is published
+     *  in a volatile field, which bytes() returns.  Bytes are never
+     *  changed once stored, so a thread that obtained a name from the
+     *  table and then calls bytes() sees that name's bytes.  An ordinary
+     *  Table reads the plain `names' field instead.  Names stay unique, and may
+     *  still be compared with ==.  The hash table keeps its initial size.
+     *
+     *  <p>A ConcurrentTable is never put on the freelist: its hash table
+     *  does not grow and its stores are synchronized, which would only
+     *  slow down a later single-threaded compilation.
+     */
+    public static class ConcurrentTable extends Table {
+
+        /** The number of bucket locks, a power of two no larger than
+         *  the hash table.
+         */
+        private static final int STRIPES = 64;
+
+        private final Object[] stripes;
+
+        /** The last value of `names', published after it was filled.
+         */
+        private volatile byte[] published;
+
+        public ConcurrentTable(int hashSize, int nameSize) {
+            super(hashSize, nameSize);
+            stripes = new Object[Math.min(STRIPES, hashSize)];
+            for (int i = 0; i < stripes.length; i++)
+                stripes[i] = new Object();
+            // the hash table cannot be replaced while other stripes are in use
+            rehashThreshold = Integer.MAX_VALUE;
+        }
+
+        public ConcurrentTable() {
+            this(0x8000, 0x20000);
+        }
+
+        @Override
+        public void dispose() {
+            // not reusable by an ordinary compilation, see above
+        }
+
+        @Override
+        protected Name enterUtf(byte cs[], int start, int len) {
+            if (stripes == null) // entering the predefined names
+                return super.enterUtf(cs, start, len);
+            int h = hashValue(cs, start, len) & (stripes.length - 1);
+            synchronized (stripes[h]) {
+                return super.enterUtf(cs, start, len);
+            }
+        }
+
+        @Override
+        public byte[] bytes() {
+            return published;
+        }
+
+        @Override
+        protected synchronized int store(byte cs[], int start, int len) {
+            int index = super.store(cs, start, len);
+            published = names;
+            return index;
+        }
+
+        @Override
+        protected Name enterChars(char[] cs, int start, int len) {
+            // other threads may be appending at the end of `names'
+            byte[] bs = new byte[len * 3];
+            int nbytes = Convert.chars2utf(cs, start, bs, 0, len);
+            return enterUtf(bs, 0, nbytes);
+        }
+    }
 }
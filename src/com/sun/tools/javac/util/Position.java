@@ -150,8 +150,14 @@ public class Position {
         protected void build(char[] src, int max) {
             int c = 0;
             int i = 0;
-            int[] linebuf = new int[max];
+            // roughly one line per 32 characters; grown as needed
+            int[] linebuf = new int[Math.max(16, max >> 5)];
             while (i < max) {
+                if (c == linebuf.length) {
+                    int[] newbuf = new int[c * 2];
+                    System.arraycopy(linebuf, 0, newbuf, 0, c);
+                    linebuf = newbuf;
+                }
                 linebuf[c++] = i;
                 do {
                     char ch = src[i];
@@ -0,0 +1,173 @@
+/*
+ * 文 件 名:  ScopeLookupBenchmark.java
+ * 描    述:  测量Scope的查找和进出局部作用域的耗时
+ * 创 建 人:  agent
+ * 创建时间: 2026-10-19
+ * 修 改 人:
+ * 修改时间:
+ * 修改内容:  <修改内容>
+ */
+package org.simonme.tracer.javac;
+
+import com.sun.tools.javac.code.Scope;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.util.Name;
+
+/**
+ * <一句话功能简述>
+ * 测量Scope的查找和进出局部作用域的耗时
+ * <功能详细描述>
+ * 对不同大小的成员作用域分别测量命中和未命中的查找，
+ * 再模拟方法体中嵌套的局部作用域(dup, enter, lookup, leave)，输出每次操作的纳秒数。
+ * 比较Scope的不同实现时，分别用修改前后的编译结果运行即可。
+ *
+ * 用法: java org.simonme.tracer.javac.ScopeLookupBenchmark [最大成员数] [轮数]
+ *
+ * @author  agent
+ * @version [版本号, 2026-10-19]
+ * @see     [相关类/方法]
+ * @since   [产品/模块版本]
+ */
+public class ScopeLookupBenchmark
+{
+    /**
+     * 每轮的操作次数
+     */
+    private static final int OPERATIONS = 1 << 22;
+
+    /**
+     * 模拟的方法体个数是操作次数的几分之一
+     */
+    private static final int METHOD_BODIES = 16;
+
+    /**
+     * 防止查找被优化掉
+     */
+    static int sink;
+
+    public static void main(String[] args)
+    {
+        int maxMembers = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 15;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Name.Table names = new Name.Table();
+        Symbol owner = new PackageSymbol(names.fromString("bench"), null);
+        Name[] present = names(names, "m", maxMembers);
+        Name[] absent = names(names, "x", Math.max(maxMembers, 512));
+
+        // 先预热，不计入结果
+        for (int size = 8; size <= maxMembers; size *= 8)
+        {
+            lookups(owner, present, present, size);
+            nested(owner, present, absent, size);
+        }
+
+        for (int size = 8; size <= maxMembers; size *= 8)
+        {
+            long hit = 0;
+            long miss = 0;
+            long local = 0;
+            for (int round = 0; round < rounds; round++)
+            {
+                hit += lookups(owner, present, present, size);
+                miss += lookups(owner, present, absent, size);
+                local += nested(owner, present, absent, size);
+            }
+            System.out.println(size + " members: hit " + perOp(hit, rounds) + " ns, miss "
+                + perOp(miss, rounds) + " ns, method body " + perOp(local * METHOD_BODIES, rounds) + " ns");
+        }
+    }
+
+    /**
+     * 在有 size 个成员的作用域中依次查找 targets 中的名字，返回耗时
+     */
+    static long lookups(Symbol owner, Name[] members, Name[] targets, int size)
+    {
+        Scope scope = new Scope(owner);
+        for (int i = 0; i < size; i++)
+        {
+            scope.enter(new VarSymbol(0, members[i], null, owner));
+        }
+        int found = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++)
+        {
+            if (scope.lookup(targets[i & (size - 1)]).scope != null)
+            {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink += found;
+        return elapsed;
+    }
+
+    /**
+     * 在有 size 个成员的作用域中反复进出三层局部作用域，每层定义四个局部变量，
+     * 并在最内层查找局部变量、成员和不存在的名字，返回耗时
+     */
+    static long nested(Symbol owner, Name[] members, Name[] locals, int size)
+    {
+        Scope scope = new Scope(owner);
+        for (int i = 0; i < size; i++)
+        {
+            scope.enter(new VarSymbol(0, members[i], null, owner));
+        }
+        VarSymbol[] vars = new VarSymbol[12];
+        for (int i = 0; i < vars.length; i++)
+        {
+            vars[i] = new VarSymbol(0, locals[i], null, owner);
+        }
+        int found = 0;
+        int iterations = OPERATIONS / METHOD_BODIES;
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            Scope s = scope;
+            for (int depth = 0; depth < 3; depth++)
+            {
+                s = s.dup();
+                for (int j = 0; j < 4; j++)
+                {
+                    s.enter(vars[depth * 4 + j]);
+                }
+            }
+            if (s.lookup(locals[i % vars.length]).scope != null)
+            {
+                found++;
+            }
+            if (s.lookup(members[i & (size - 1)]).scope != null)
+            {
+                found++;
+            }
+            if (s.lookup(locals[vars.length + (i & (size - 1) & 0xff)]).scope != null)
+            {
+                found++;
+            }
+            while (s != scope)
+            {
+                s = s.leave();
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink += found;
+        return elapsed;
+    }
+
+    private static Name[] names(Name.Table names, String prefix, int count)
+    {
+        Name[] result = new Name[count];
+        for (int i = 0; i < count; i++)
+        {
+            result[i] = names.fromString(prefix + i);
+        }
+        return result;
+    }
+
+    private static String perOp(long nanos, int rounds)
+    {
+        return String.format("%.1f", (double)nanos / rounds / OPERATIONS);
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * 文 件 名:  TraceCompileBenchmark.java
+ * 描    述:  测量插入trace代码的编译吞吐量
+ * 创 建 人:  agent
+ * 创建时间: 2026-10-19
+ * 修 改 人:
+ * 修改时间:
+ * 修改内容:  <修改内容>
+ */
+package org.simonme.tracer.javac;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileManager;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.Main;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * <一句话功能简述>
+ * 测量插入trace代码的编译吞吐量
+ * <功能详细描述>
+ * 先生成一批大小不一的java源文件，再分别不带和带 -traceCode 选项调用 Main.compile,
+ * 输出每秒编译的文件数和各阶段(parse, inject, write mirror, enter, analyze, generate)的耗时。
+ * inject 的耗时包含在parse中，用带trace的parse耗时减去不带trace的parse耗时得到。
+ * 源文件生成在临时目录中并作为 -srcPath，每轮编译都会把镜像源码写到它旁边的"src_"目录，
+ * 这部分耗时计入write mirror和总耗时；结束时删除临时目录。
+ *
+ * 用法: java org.simonme.tracer.javac.TraceCompileBenchmark [class输出目录] [文件数] [每个文件的方法数] [轮数] [其他javac选项...]
+ *
+ * @author  agent
+ * @version [版本号, 2026-10-19]
+ * @see     [相关类/方法]
+ * @since   [产品/模块版本]
+ */
+public class TraceCompileBenchmark
+{
+    /**
+     * 插入的trace代码，只需要能通过编译
+     */
+    private static final String TRACE_CODE = "bench.Tracer.trace";
+
+    /**
+     * 统计的阶段
+     */
+    enum Phase
+    {
+        PARSE, WRITE_MIRROR, ENTER, ANALYZE, GENERATE;
+    }
+
+    /**
+     * 通过TaskListener统计各阶段耗时.
+     * 同一种事件可能嵌套(如enterTrees先对所有文件发started再发finished)，只统计最外层的区间。
+     * 生成镜像源码发生在一个文件parse结束之后、下一个文件parse开始(或enter开始)之前。
+     */
+    static class PhaseTimer implements TaskListener
+    {
+        final long[] nanos = new long[Phase.values().length];
+
+        private final int[] depth = new int[Phase.values().length];
+
+        private final long[] start = new long[Phase.values().length];
+
+        private long mirrorStart = 0;
+
+        public void started(TaskEvent e)
+        {
+            Phase phase = phaseOf(e.getKind());
+            if (phase == null)
+            {
+                return;
+            }
+            long now = System.nanoTime();
+            endMirror(now);
+            if (depth[phase.ordinal()]++ == 0)
+            {
+                start[phase.ordinal()] = now;
+            }
+        }
+
+        public void finished(TaskEvent e)
+        {
+            Phase phase = phaseOf(e.getKind());
+            if (phase == null || depth[phase.ordinal()] == 0)
+            {
+                return;
+            }
+            long now = System.nanoTime();
+            if (--depth[phase.ordinal()] == 0)
+            {
+                nanos[phase.ordinal()] += now - start[phase.ordinal()];
+            }
+            if (phase == Phase.PARSE)
+            {
+                mirrorStart = now;
+            }
+        }
+
+        private void endMirror(long now)
+        {
+            if (mirrorStart != 0)
+            {
+                nanos[Phase.WRITE_MIRROR.ordinal()] += now - mirrorStart;
+                mirrorStart = 0;
+            }
+        }
+
+        private static Phase phaseOf(TaskEvent.Kind kind)
+        {
+            switch (kind)
+            {
+                case PARSE:
+                    return Phase.PARSE;
+                case ENTER:
+                    return Phase.ENTER;
+                case ANALYZE:
+                    return Phase.ANALYZE;
+                case GENERATE:
+                    return Phase.GENERATE;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    public static void main(String[] args)
+        throws IOException
+    {
+        File workDir = new File(args.length > 0 ? args[0] : "traceBenchWorkDir");
+        int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int methodCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        List<String> javacOptions = new ArrayList<String>();
+        for (int i = 4; i < args.length; i++)
+        {
+            javacOptions.add(args[i]);
+        }
+
+        // 源文件和镜像源码都放在临时目录中，不写到工作目录
+        File tempDir = Files.createTempDirectory("traceBench").toFile();
+        try
+        {
+            File srcDir = new File(tempDir, "src");
+            List<String> files = generateCorpus(srcDir, fileCount, methodCount);
+            System.out.println("corpus: " + files.size() + " files in " + srcDir);
+            System.out.println("mirror sources are written to " + srcDir.getPath() + "_ in every round, "
+                + "included in write_mirror and total");
+
+            // 两种模式先各跑一遍作为预热，不计入结果
+            run(workDir, srcDir, files, javacOptions, false, rounds);
+            run(workDir, srcDir, files, javacOptions, true, rounds);
+            long[] plain = run(workDir, srcDir, files, javacOptions, false, rounds);
+            long[] traced = run(workDir, srcDir, files, javacOptions, true, rounds);
+
+            System.out.println();
+            report("plain", plain, files.size(), rounds, 0);
+            report("traced", traced, files.size(), rounds, plain[Phase.PARSE.ordinal()]);
+        }
+        finally
+        {
+            delete(tempDir);
+        }
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * 执行多轮编译，返回各阶段的总耗时，最后一个元素是总的墙钟时间
+     */
+    static long[] run(File workDir, File srcDir, List<String> files, List<String> javacOptions, boolean trace,
+        int rounds)
+    {
+        long[] total = new long[Phase.values().length + 1];
+        File classesDir = new File(workDir, trace ? "classes_traced" : "classes");
+        classesDir.mkdirs();
+
+        List<String> argList = new ArrayList<String>(javacOptions);
+        argList.add("-d");
+        argList.add(classesDir.getPath());
+        argList.add("-srcPath");
+        argList.add(srcDir.getAbsolutePath());
+        if (trace)
+        {
+            argList.add("-traceCode");
+            argList.add(TRACE_CODE);
+        }
+        argList.addAll(files);
+        String[] compileArgs = argList.toArray(new String[argList.size()]);
+
+        for (int round = 0; round < rounds; round++)
+        {
+            PhaseTimer timer = new PhaseTimer();
+            Context context = new Context();
+            JavacFileManager.preRegister(context);
+            context.put(TaskListener.class, timer);
+
+            StringWriter out = new StringWriter();
+            long begin = System.nanoTime();
+            int result = new Main("javac", new PrintWriter(out, true)).compile(compileArgs, context);
+            long elapsed = System.nanoTime() - begin;
+            closeFileManager(context);
+
+            if (result != 0)
+            {
+                throw new IllegalStateException("compile failed: " + out);
+            }
+            for (int i = 0; i < timer.nanos.length; i++)
+            {
+                total[i] += timer.nanos[i];
+            }
+            total[total.length - 1] += elapsed;
+        }
+        return total;
+    }
+
+    private static void closeFileManager(Context context)
+    {
+        JavaFileManager fileManager = context.get(JavaFileManager.class);
+        if (fileManager == null)
+        {
+            return;
+        }
+        try
+        {
+            fileManager.close();
+        }
+        catch (IOException e)
+        {
+            // 只是基准测试，忽略
+        }
+    }
+
+    static void report(String mode, long[] total, int fileCount, int rounds, long plainParseNanos)
+    {
+        long wall = total[total.length - 1] / rounds;
+        StringBuilder sb = new StringBuilder(mode);
+        sb.append(": ").append(String.format("%.1f", fileCount * 1e9 / wall)).append(" files/s, ");
+        sb.append("total ").append(millis(wall)).append(" ms");
+        for (Phase phase : Phase.values())
+        {
+            sb.append(", ").append(phase.name().toLowerCase()).append(' ');
+            sb.append(millis(total[phase.ordinal()] / rounds)).append(" ms");
+        }
+        if (plainParseNanos > 0)
+        {
+            long inject = (total[Phase.PARSE.ordinal()] - plainParseNanos) / rounds;
+            sb.append(", inject ").append(millis(inject)).append(" ms");
+        }
+        System.out.println(sb);
+    }
+
+    private static String millis(long nanos)
+    {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    /**
+     * 生成用于测试的源文件，文件的方法数在 methodCount 的1到4倍之间变化
+     */
+    static List<String> generateCorpus(File srcDir, int fileCount, int methodCount)
+        throws IOException
+    {
+        File packageDir = new File(srcDir, "bench");
+        packageDir.mkdirs();
+        List<String> files = new ArrayList<String>();
+
+        writeFile(new File(packageDir, "Tracer.java"), "package bench;\n\npublic class Tracer {\n"
+            + "    public static void trace(Object... args) {\n    }\n}\n");
+
+        for (int i = 0; i < fileCount; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package bench;\n\nimport java.util.*;\n\n");
+            sb.append("public class C").append(i).append(" {\n");
+            sb.append("    private final List<String> names = new ArrayList<String>();\n\n");
+            int methods = methodCount * (1 + i % 4);
+            for (int j = 0; j < methods; j++)
+            {
+                sb.append("    public int m").append(j).append("(int a, String b, long c) {\n");
+                sb.append("        int s = a;\n");
+                sb.append("        for (int k = 0; k < a; k++) {\n");
+                sb.append("            s += k * ").append(j + 1).append(";\n");
+                sb.append("        }\n");
+                sb.append("        if (b != null && !names.contains(b)) {\n");
+                sb.append("            names.add(b);\n");
+                sb.append("            s += b.length();\n");
+                sb.append("        }\n");
+                sb.append("        return s + (int) c;\n");
+                sb.append("    }\n\n");
+            }
+            sb.append("}\n");
+            File file = new File(packageDir, "C" + i + ".java");
+            writeFile(file, sb.toString());
+            files.add(file.getPath());
+        }
+        files.add(new File(packageDir, "Tracer.java").getPath());
+        return files;
+    }
+
+    private static void writeFile(File file, String content)
+        throws IOException
+    {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        try
+        {
+            bw.write(content);
+        }
+        finally
+        {
+            bw.close();
+        }
+    }
+}
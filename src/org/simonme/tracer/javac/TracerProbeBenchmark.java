@@ -0,0 +1,244 @@
+/*
+ * 文 件 名:  TracerProbeBenchmark.java
+ * 描    述:  测量插入的trace探针Tracer.traceMethodInvoke每次调用的开销
+ * 创 建 人:  agent
+ * 创建时间: 2026-10-19
+ * 修 改 人:
+ * 修改时间:
+ * 修改内容:  <修改内容>
+ */
+package org.simonme.tracer.javac;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.simonme.tracer.logger.IArgumentsTracer;
+import org.simonme.tracer.logger.ISkip;
+import org.simonme.tracer.logger.Tracer;
+
+/**
+ * <一句话功能简述>
+ * 测量插入的trace探针Tracer.traceMethodInvoke每次调用的开销
+ * <功能详细描述>
+ * 依赖 org.simonme.tracer.logger_1.0.0.jar。
+ * 对0/1/4/8个参数、1/4/16个线程、跳过(ISkip全部跳过)开和关、参数记录(IArgumentsTracer)开和关的每种组合，
+ * 各线程在同一段时间内反复调用探针，输出每次调用的纳秒数(线程时间之和除以调用次数)
+ * 和每次调用分配的字节数(来自ThreadMXBean.getThreadAllocatedBytes，相当于JMH GC profiler的gc.alloc.rate.norm)。
+ * 每次调用都像插入的代码一样新建参数数组，这部分分配也计入结果。
+ *
+ * 注意:
+ * Tracer的配置在类初始化时读取，所以不跳过时日志缓冲区固定为1024000条，
+ * 写满后写到 d:/trace_log/ 目录(非Windows下相对于当前目录)，写文件的耗时计入结果。
+ * Tracer的日志缓冲区不是线程安全的，多线程不跳过时可能抛出异常，异常次数单独输出。
+ * 以后的探针实现也应该用同样的组合测量。
+ *
+ * 用法: java org.simonme.tracer.javac.TracerProbeBenchmark [每种组合的测量毫秒数] [预热毫秒数]
+ *
+ * @author  agent
+ * @version [版本号, 2026-10-19]
+ * @see     [相关类/方法]
+ * @since   [产品/模块版本]
+ */
+public class TracerProbeBenchmark
+{
+    private static final int[] ARG_COUNTS = {0, 1, 4, 8};
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    /**
+     * 跳过所有调用
+     */
+    private static final ISkip SKIP_ALL = new ISkip()
+    {
+        public boolean skipTraceMethodInvoke(String method, Object... args)
+        {
+            return true;
+        }
+    };
+
+    /**
+     * 把每个参数转成字符串记录下来
+     */
+    private static final IArgumentsTracer ARGUMENTS = new IArgumentsTracer()
+    {
+        public void traceArguments(List<String> logs, Object... args)
+        {
+            if (args == null)
+            {
+                return;
+            }
+            for (Object arg : args)
+            {
+                logs.add(String.valueOf(arg));
+            }
+        }
+    };
+
+    /**
+     * 一次测量的结果
+     */
+    static class Result
+    {
+        long operations;
+
+        long threadNanos;
+
+        long allocatedBytes;
+
+        long errors;
+    }
+
+    private static volatile boolean stop;
+
+    public static void main(String[] args)
+        throws InterruptedException
+    {
+        long measureMillis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        long warmupMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        com.sun.management.ThreadMXBean threads = allocationBean();
+        if (threads == null)
+        {
+            System.out.println("allocated bytes are not supported by this JVM, reported as 0");
+        }
+
+        System.out.println("skip,argumentTracing,args,threads,ns/op,bytes/op,errors");
+        for (boolean skip : new boolean[] {true, false})
+        {
+            for (boolean argumentTracing : new boolean[] {false, true})
+            {
+                Tracer.setSkip(skip ? SKIP_ALL : null);
+                Tracer.setArgumentProcesser(argumentTracing ? ARGUMENTS : null);
+                for (int argCount : ARG_COUNTS)
+                {
+                    for (int threadCount : THREAD_COUNTS)
+                    {
+                        run(threads, argCount, threadCount, warmupMillis);
+                        Result r = run(threads, argCount, threadCount, measureMillis);
+                        System.out.println(skip + "," + argumentTracing + "," + argCount + "," + threadCount + ","
+                            + String.format("%.1f", (double)r.threadNanos / r.operations) + ","
+                            + String.format("%.1f", (double)r.allocatedBytes / r.operations) + "," + r.errors);
+                    }
+                }
+            }
+        }
+        Tracer.setSkip(null);
+        Tracer.setArgumentProcesser(null);
+    }
+
+    /**
+     * 用 threadCount 个线程调用探针 millis 毫秒，返回所有线程的合计
+     */
+    static Result run(final com.sun.management.ThreadMXBean threads, final int argCount, int threadCount,
+        long millis)
+        throws InterruptedException
+    {
+        final Result total = new Result();
+        final CountDownLatch started = new CountDownLatch(threadCount);
+        final CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threadCount];
+        stop = false;
+        for (int i = 0; i < threadCount; i++)
+        {
+            workers[i] = new Thread("tracer probe " + i)
+            {
+                public void run()
+                {
+                    started.countDown();
+                    try
+                    {
+                        go.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    long id = Thread.currentThread().getId();
+                    long operations = 0;
+                    long errors = 0;
+                    long allocated = threads == null ? 0 : threads.getThreadAllocatedBytes(id);
+                    long begin = System.nanoTime();
+                    while (!stop)
+                    {
+                        try
+                        {
+                            probe(argCount, operations);
+                        }
+                        catch (RuntimeException e)
+                        {
+                            errors++;
+                        }
+                        operations++;
+                    }
+                    long elapsed = System.nanoTime() - begin;
+                    if (threads != null)
+                    {
+                        allocated = threads.getThreadAllocatedBytes(id) - allocated;
+                    }
+                    synchronized (total)
+                    {
+                        total.operations += operations;
+                        total.threadNanos += elapsed;
+                        total.allocatedBytes += allocated;
+                        total.errors += errors;
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        started.await();
+        go.countDown();
+        Thread.sleep(millis);
+        stop = true;
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+        return total;
+    }
+
+    /**
+     * 像插入的代码一样调用探针，参数数组每次新建
+     */
+    private static void probe(int argCount, long i)
+    {
+        switch (argCount)
+        {
+            case 0:
+                Tracer.traceMethodInvoke();
+                break;
+            case 1:
+                Tracer.traceMethodInvoke("a");
+                break;
+            case 4:
+                Tracer.traceMethodInvoke("a", Long.valueOf(i), "c", null);
+                break;
+            default:
+                Tracer.traceMethodInvoke("a", Long.valueOf(i), "c", null, "e", Integer.valueOf(argCount), "g",
+                    Boolean.TRUE);
+                break;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try
+        {
+            if (threads instanceof com.sun.management.ThreadMXBean)
+            {
+                com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean)threads;
+                if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled())
+                {
+                    return t;
+                }
+            }
+        }
+        catch (LinkageError e)
+        {
+            // 不是HotSpot，不统计分配
+        }
+        return null;
+    }
+}